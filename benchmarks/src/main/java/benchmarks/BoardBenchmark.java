@@ -0,0 +1,51 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Square lookup and whole-game copies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+    @Param({Positions.OPENING, Positions.KIWIPETE, Positions.ROOK_ENDGAME})
+    public String position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private ChessPosition[] squares;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        board = game.getBoard();
+        // fresh position objects, the way callers outside the board look squares up
+        squares = new ChessPosition[64];
+        for (int i = 0; i < 64; i++) {
+            squares[i] = new ChessPosition(i / 8 + 1, i % 8 + 1);
+        }
+    }
+
+    @Benchmark
+    public void getPieceEverySquare(Blackhole blackhole) {
+        for (ChessPosition square : squares) {
+            blackhole.consume(board.getPiece(square));
+        }
+    }
+
+    @Benchmark
+    public ChessGame copyGame() {
+        return game.copy();
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal move generation and game status checks, which every MAKE_MOVE runs.
+ * <p>
+ * A game keeps its status for the position it was worked out for, so the status
+ * checks run on a fresh copy each call, as after a move; {@link #isGameOverCached}
+ * times asking again about the same position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveGenerationBenchmark {
+
+    @Param({Positions.OPENING, Positions.ITALIAN, Positions.KIWIPETE, Positions.DRAGON,
+            Positions.ROOK_ENDGAME, Positions.PAWN_ENDGAME})
+    public String position;
+
+    private ChessGame game;
+    private List<ChessPosition> pieces;
+
+    /**
+     * A copy of the game made before each call, whose status is not yet known
+     */
+    @State(Scope.Thread)
+    public static class ColdGame {
+        private ChessGame game;
+
+        @Setup(Level.Invocation)
+        public void copy(MoveGenerationBenchmark benchmark) {
+            game = benchmark.game.copy();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        pieces = Positions.sideToMove(game);
+    }
+
+    @Benchmark
+    public void validMovesAllPieces(Blackhole blackhole) {
+        for (ChessPosition square : pieces) {
+            blackhole.consume(game.validMoves(square));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate(ColdGame cold) {
+        return cold.game.isInCheckmate(cold.game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate(ColdGame cold) {
+        return cold.game.isInStalemate(cold.game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isGameOver(ColdGame cold) {
+        return cold.game.isGameOver();
+    }
+
+    @Benchmark
+    public boolean isGameOverCached() {
+        return game.isGameOver();
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import chess.Fen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark fixtures, named so they can be used as JMH {@code @Param} values.
+ */
+public class Positions {
+
+    public static final String OPENING = "opening";
+    public static final String ITALIAN = "italian";
+    public static final String KIWIPETE = "kiwipete";
+    public static final String DRAGON = "dragon";
+    public static final String ROOK_ENDGAME = "rookEndgame";
+    public static final String PAWN_ENDGAME = "pawnEndgame";
+
+    private static final Map<String, String> FENS = Map.of(
+            OPENING, Fen.START_POSITION,
+            ITALIAN, "r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+            KIWIPETE, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            DRAGON, "r1bq1rk1/pp2ppbp/2np1np1/8/3NP3/2N1BP2/PPPQ2PP/R3KB1R w KQ - 3 9",
+            ROOK_ENDGAME, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            PAWN_ENDGAME, "8/5pk1/6p1/8/5P2/6PK/8/8 w - - 0 1"
+    );
+
+    private Positions() {
+    }
+
+    public static ChessGame load(String name) {
+        String fen = FENS.get(name);
+        if (fen == null) {
+            throw new IllegalArgumentException("Unknown benchmark position: " + name);
+        }
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return the squares holding a piece of the team whose turn it is
+     */
+    public static List<ChessPosition> sideToMove(ChessGame game) {
+        List<ChessPosition> squares = new ArrayList<>();
+        for (ChessPosition square : game.getBoard().getBoard()) {
+            if (square.getOccupied() != null && square.getOccupied().getTeamColor() == game.getTeamTurn()) {
+                squares.add(new ChessPosition(square.getRow(), square.getColumn()));
+            }
+        }
+        return squares;
+    }
+}
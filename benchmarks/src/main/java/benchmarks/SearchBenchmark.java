@@ -0,0 +1,66 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ParallelSearch;
+import chess.Search;
+import chess.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search speed by thread count. Each operation is a fixed-time search; the
+ * {@code nodes} counter is reported per second, which is the number to compare
+ * across thread counts to see how close to linear the parallel search scales.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final long SEARCH_MILLIS = 250;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({Positions.ITALIAN, Positions.KIWIPETE})
+    public String position;
+
+    private ChessGame game;
+    private ParallelSearch search;
+
+    /**
+     * Counts searched nodes across operations so JMH reports them as a rate
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        search = new ParallelSearch(threads, new TranspositionTable(64));
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.close();
+    }
+
+    @Benchmark
+    public Search.Result search(Nodes counter) {
+        Search.Result result = search.search(game, 64, SEARCH_MILLIS);
+        counter.nodes += result.getNodes();
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameStateCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The binary codec GameDAO stores games with, the Gson round trip it used before,
+ * the LOAD_GAME message ConnectionManager sends after every move, and FEN for
+ * comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    private static final Gson GSON = new Gson();
+
+    @Param({Positions.OPENING, Positions.DRAGON, Positions.PAWN_ENDGAME})
+    public String position;
+
+    private ChessGame game;
+    private String gameState;
+    private String fen;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        gameState = GSON.toJson(game);
+        fen = game.toFen();
+        encoded = GameStateCodec.encode(game);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return GameStateCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame codecDecode() {
+        return GameStateCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public String gameStateToJson() {
+        return GSON.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gameStateFromJson() {
+        return GSON.fromJson(gameState, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame gameStateRoundTrip() {
+        return GSON.fromJson(GSON.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String fenToString() {
+        return game.toFen();
+    }
+
+    @Benchmark
+    public ChessGame fenFromString() {
+        return ChessGame.fromFen(fen);
+    }
+
+    @Benchmark
+    public String loadGameMessage() {
+        return new Gson().toJson(ServerMessage.loadGame(game));
+    }
+}
@@ -0,0 +1,544 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of database connections, so a request reuses an open connection
+ * instead of paying for a new TCP and login handshake.
+ * <p>
+ * Connections are lent out as proxies whose {@code close()} hands the connection
+ * back. Once the pool holds {@link Config#maxSize} connections, borrowers wait up
+ * to {@link Config#acquireTimeoutMillis} for one to be returned. A connection that
+ * has sat idle for a while is checked with {@link Connection#isValid} before it is
+ * lent again, and one held for longer than {@link Config#leakThresholdMillis} is
+ * reported with the thread that borrowed it, and with its stack if
+ * {@link Config#leakStackTraces} is set. Leaks and idle connections are checked
+ * every {@link Config#housekeepingMillis} on a daemon thread, so they are found on
+ * a quiet server too. The same thread opens {@link Config#minIdle} connections
+ * when the pool is made, and opens more whenever fewer are idle, so the first
+ * requests after startup or an outage need not wait for a handshake. Each
+ * connection keeps a {@link StatementCache} of its prepared statements.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Pool settings, read from the {@code db.pool.*} properties
+     *
+     * @param maxSize              the most connections open at once
+     * @param minIdle              idle connections kept open and ready, opened ahead of need
+     * @param maxIdle              the most idle connections kept; more are closed when returned
+     * @param acquireTimeoutMillis how long to wait for a connection when all are in use
+     * @param validateAfterMillis  how long a connection may sit idle before it is checked
+     * @param idleTimeoutMillis    how long a connection beyond {@code minIdle} may sit idle
+     * @param leakThresholdMillis  how long a connection may be held before it is reported,
+     *                             or 0 to not track borrowers
+     * @param leakStackTraces      whether to record the stack of every borrower, so a leak
+     *                             report says where the connection was taken; this walks
+     *                             the stack on each acquire, so it is off by default
+     * @param housekeepingMillis   how often to report leaks, close idle connections and top up
+     *                             {@code minIdle}, or 0 to leave it to whoever calls {@link #housekeep}
+     * @param statementCacheSize   prepared statements kept open per connection, or 0 for none
+     */
+    record Config(int maxSize, int minIdle, int maxIdle, long acquireTimeoutMillis,
+                  long validateAfterMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                  boolean leakStackTraces, long housekeepingMillis, int statementCacheSize) {
+
+        Config {
+            if (maxSize < 1 || minIdle < 0 || maxIdle < minIdle || maxIdle > maxSize) {
+                throw new IllegalArgumentException("Bad connection pool sizes: max " + maxSize
+                        + ", min idle " + minIdle + ", max idle " + maxIdle);
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("Bad statement cache size: " + statementCacheSize);
+            }
+        }
+
+        static Config from(Properties props) {
+            return new Config(
+                    intProperty(props, "db.pool.maxSize", 10),
+                    intProperty(props, "db.pool.minIdle", 2),
+                    intProperty(props, "db.pool.maxIdle", 10),
+                    longProperty(props, "db.pool.acquireTimeoutMillis", 5000),
+                    longProperty(props, "db.pool.validateAfterMillis", 5000),
+                    longProperty(props, "db.pool.idleTimeoutMillis", 600_000),
+                    longProperty(props, "db.pool.leakThresholdMillis", 30_000),
+                    Boolean.parseBoolean(props.getProperty("db.pool.leakStackTraces", "false").trim()),
+                    longProperty(props, "db.pool.housekeepingMillis", 1000),
+                    intProperty(props, "db.pool.statementCacheSize", 32));
+        }
+
+        private static int intProperty(Properties props, String name, int defaultValue) {
+            String value = props.getProperty(name);
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        }
+
+        private static long longProperty(Properties props, String name, long defaultValue) {
+            String value = props.getProperty(name);
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        }
+    }
+
+    /**
+     * Counts since the pool was made
+     *
+     * @param open            connections open now, idle or lent out
+     * @param idle            connections waiting to be lent
+     * @param acquired        connections lent out
+     * @param created         connections opened
+     * @param destroyed       connections closed, for failing validation, being idle or broken
+     * @param timeouts        borrowers that gave up waiting
+     * @param leaks           connections reported as held for too long
+     * @param totalWaitNanos  time spent getting connections, over all borrowers
+     * @param maxWaitNanos    the longest time spent getting one connection
+     * @param statementHits   prepared statements reused from a connection's cache
+     * @param statementMisses prepared statements that had to be prepared
+     */
+    public record Stats(int open, int idle, long acquired, long created, long destroyed,
+                        long timeouts, long leaks, long totalWaitNanos, long maxWaitNanos,
+                        long statementHits, long statementMisses) {
+
+        public double averageWaitMillis() {
+            return acquired == 0 ? 0.0 : totalWaitNanos / 1e6 / acquired;
+        }
+
+        public double statementHitRate() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0.0 : (double) statementHits / lookups;
+        }
+    }
+
+    private final class Pooled {
+        final Connection connection;
+        final StatementCache statements;
+        long returnedAt;
+        long borrowedAt;
+        String borrowerThread;
+        Throwable borrowedBy;
+        boolean leakReported;
+        volatile boolean broken;
+
+        Pooled(Connection connection) {
+            this.connection = connection;
+            this.statements = config.statementCacheSize() == 0 ? null : new StatementCache(
+                    config.statementCacheSize(), statementHits, statementMisses, () -> broken = true);
+        }
+    }
+
+    private final Config config;
+    private final ConnectionFactory factory;
+    // most recently returned last, so the connection lent is the one most likely still valid
+    private final Deque<Pooled> idle = new ArrayDeque<>();
+    private final Set<Pooled> borrowed = new HashSet<>();
+    private final ScheduledExecutorService housekeeper;
+    private int open;
+    private boolean closed;
+
+    private long acquired;
+    private long created;
+    private long destroyed;
+    private long timeouts;
+    private long leaks;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    // counted outside the lock, by each borrower's own statement cache
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    ConnectionPool(Config config, ConnectionFactory factory) {
+        this.config = config;
+        this.factory = factory;
+        if (config.housekeepingMillis() > 0) {
+            housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "db-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // the first run fills the pool to its minimum idle connections
+            housekeeper.scheduleWithFixedDelay(this::housekeep, 0, config.housekeepingMillis(),
+                    TimeUnit.MILLISECONDS);
+        } else {
+            housekeeper = null;
+        }
+    }
+
+    /**
+     * Lends a connection, opening one if none are idle and the pool is not full
+     *
+     * @return a connection to close when done with, which returns it to the pool
+     * @throws SQLTimeoutException if the pool stayed full for the acquire timeout
+     * @throws SQLException        if a new connection could not be opened
+     */
+    Connection acquire() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.acquireTimeoutMillis());
+        while (true) {
+            Pooled pooled;
+            synchronized (this) {
+                pooled = waitForIdle(deadline);
+                if (pooled == null) {
+                    open++;
+                }
+            }
+            if (pooled == null) {
+                pooled = openConnection();
+            } else if (!stillValid(pooled)) {
+                discard(pooled);
+                continue;
+            }
+            return lend(pooled, start);
+        }
+    }
+
+    // returns an idle connection, or null with the caller free to open one
+    private Pooled waitForIdle(long deadline) throws SQLException {
+        while (!closed && idle.isEmpty() && open >= config.maxSize()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                timeouts++;
+                throw new SQLTimeoutException("Timed out after " + config.acquireTimeoutMillis()
+                        + " ms waiting for one of " + config.maxSize() + " database connections");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a database connection", e);
+            }
+        }
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        return idle.pollLast();
+    }
+
+    private Pooled openConnection() throws SQLException {
+        try {
+            Pooled pooled = new Pooled(factory.open());
+            synchronized (this) {
+                created++;
+            }
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                open--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private boolean stillValid(Pooled pooled) {
+        long idleNanos = System.nanoTime() - pooled.returnedAt;
+        if (idleNanos < TimeUnit.MILLISECONDS.toNanos(config.validateAfterMillis())) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(Math.max(1, (int) (config.acquireTimeoutMillis() / 1000)));
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private synchronized Connection lend(Pooled pooled, long start) {
+        long now = System.nanoTime();
+        pooled.borrowedAt = now;
+        if (config.leakThresholdMillis() > 0) {
+            pooled.borrowerThread = Thread.currentThread().getName();
+            pooled.borrowedBy = config.leakStackTraces() ? new Throwable("Connection borrowed here") : null;
+        }
+        pooled.leakReported = false;
+        borrowed.add(pooled);
+        acquired++;
+        long waited = now - start;
+        totalWaitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle(pooled));
+    }
+
+    /**
+     * Reports connections held past the leak threshold, closes connections idle
+     * past the idle timeout, and opens connections until {@link Config#minIdle} are
+     * idle. Runs on the housekeeping thread, independent of traffic.
+     */
+    void housekeep() {
+        List<Pooled> toClose = new ArrayList<>();
+        int missing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            reportLeaks(System.nanoTime());
+            evictIdle(toClose);
+            open -= toClose.size();
+            destroyed += toClose.size();
+            // the slots are taken now so borrowers opening their own cannot overfill the pool
+            missing = Math.max(0, Math.min(config.minIdle() - idle.size(), config.maxSize() - open));
+            open += missing;
+            if (!toClose.isEmpty()) {
+                notifyAll();
+            }
+        }
+        toClose.forEach(ConnectionPool::closeQuietly);
+        fillIdle(missing);
+    }
+
+    // opens connections into slots already counted as open
+    private void fillIdle(int count) {
+        for (int i = 0; i < count; i++) {
+            Pooled pooled;
+            try {
+                pooled = openConnection();
+            } catch (SQLException | RuntimeException e) {
+                // the database is unreachable, so give back the other slots and try next time
+                synchronized (this) {
+                    open -= count - i - 1;
+                    notifyAll();
+                }
+                return;
+            }
+            boolean kept;
+            synchronized (this) {
+                kept = !closed;
+                if (kept) {
+                    pooled.returnedAt = System.nanoTime();
+                    idle.addLast(pooled);
+                } else {
+                    open--;
+                    destroyed++;
+                }
+                notifyAll();
+            }
+            if (!kept) {
+                closeQuietly(pooled);
+            }
+        }
+    }
+
+    // replaces closed connections without holding up the borrower that closed them
+    private void scheduleTopUp() {
+        if (housekeeper == null || config.minIdle() == 0) {
+            return;
+        }
+        try {
+            housekeeper.execute(this::housekeep);
+        } catch (RejectedExecutionException ignored) {
+            // the pool has been closed
+        }
+    }
+
+    private void reportLeaks(long now) {
+        if (config.leakThresholdMillis() <= 0) {
+            return;
+        }
+        long threshold = TimeUnit.MILLISECONDS.toNanos(config.leakThresholdMillis());
+        for (Pooled pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                pooled.leakReported = true;
+                leaks++;
+                System.err.println("Database connection borrowed by thread " + pooled.borrowerThread
+                        + " held for more than " + config.leakThresholdMillis() + " ms without being closed");
+                if (pooled.borrowedBy != null) {
+                    pooled.borrowedBy.printStackTrace();
+                } else {
+                    System.err.println("Set db.pool.leakStackTraces=true to record where it was borrowed");
+                }
+            }
+        }
+    }
+
+    private void release(Pooled pooled) {
+        Connection connection = pooled.connection;
+        if (pooled.statements != null) {
+            pooled.statements.releaseAll();
+        }
+        try {
+            if (!pooled.broken && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            pooled.broken = true;
+        }
+        List<Pooled> toClose = new ArrayList<>();
+        synchronized (this) {
+            borrowed.remove(pooled);
+            if (!closed && !pooled.broken && idle.size() < config.maxIdle()) {
+                pooled.returnedAt = System.nanoTime();
+                idle.addLast(pooled);
+            } else {
+                toClose.add(pooled);
+            }
+            evictIdle(toClose);
+            open -= toClose.size();
+            destroyed += toClose.size();
+            notifyAll();
+        }
+        toClose.forEach(ConnectionPool::closeQuietly);
+        if (!toClose.isEmpty()) {
+            scheduleTopUp();
+        }
+    }
+
+    // oldest first, down to the minimum idle
+    private void evictIdle(List<Pooled> toClose) {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(config.idleTimeoutMillis());
+        while (idle.size() > config.minIdle() && idle.peekFirst().returnedAt - cutoff < 0) {
+            toClose.add(idle.pollFirst());
+        }
+    }
+
+    private void discard(Pooled pooled) {
+        synchronized (this) {
+            open--;
+            destroyed++;
+            notifyAll();
+        }
+        closeQuietly(pooled);
+        scheduleTopUp();
+    }
+
+    private static void closeQuietly(Pooled pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignored) {
+            // the connection is being dropped either way
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(open, idle.size(), acquired, created, destroyed, timeouts, leaks,
+                totalWaitNanos, maxWaitNanos, statementHits.sum(), statementMisses.sum());
+    }
+
+    Config getConfig() {
+        return config;
+    }
+
+    // SQL states in class 08 mean the connection itself failed
+    static boolean isConnectionFailure(Throwable e) {
+        return e instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Closes the idle connections and refuses new borrowers. Connections still lent
+     * out are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        List<Pooled> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            open -= toClose.size();
+            destroyed += toClose.size();
+            notifyAll();
+        }
+        toClose.forEach(ConnectionPool::closeQuietly);
+    }
+
+    /**
+     * The connection handed to a borrower: everything goes to the pooled connection
+     * except {@code close()}, which returns it, after which it can no longer be used
+     */
+    private final class Handle implements InvocationHandler {
+        private final Pooled pooled;
+        private boolean returned;
+
+        Handle(Pooled pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.connection;
+                }
+                default -> {
+                }
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                if (pooled.statements != null && method.getName().equals("prepareStatement")) {
+                    PreparedStatement cached = prepareCached((Connection) proxy, method, args);
+                    if (cached != null) {
+                        return cached;
+                    }
+                }
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                if (isConnectionFailure(e.getCause())) {
+                    pooled.broken = true;
+                }
+                throw e.getCause();
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) {
+                    pooled.broken = true;
+                }
+                throw e;
+            }
+        }
+
+        // only prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) are cached
+        private PreparedStatement prepareCached(Connection proxy, Method method, Object[] args) throws SQLException {
+            Class<?>[] types = method.getParameterTypes();
+            String sql = (String) args[0];
+            if (types.length == 1) {
+                return pooled.statements.prepare(sql, proxy, () -> pooled.connection.prepareStatement(sql));
+            }
+            if (types.length == 2 && types[1] == int.class) {
+                int keys = (Integer) args[1];
+                return pooled.statements.prepare(keys + ":" + sql, proxy,
+                        () -> pooled.connection.prepareStatement(sql, keys));
+            }
+            return null;
+        }
+    }
+}
@@ -8,6 +8,7 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static volatile ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,9 +31,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * Borrows a connection to the database from the pool, opening one with the
+     * catalog set from db.properties if none is free. Connections to the database should
+     * be short-lived, and you must close the connection when you are done with it,
+     * which returns it to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -44,14 +46,19 @@ public class DatabaseManager {
     static Connection getConnection() throws DataAccessException {
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.acquire();
         } catch (SQLException ex) {
             throw new DataAccessException("Error: failed to get connection", ex);
         }
     }
 
+    /**
+     * @return how busy the connection pool has been, for monitoring
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -73,5 +80,28 @@ public class DatabaseManager {
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
         connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+
+        // connections already lent out by the old pool are closed when returned
+        String url = connectionUrl;
+        String user = dbUsername;
+        String password = dbPassword;
+        String catalog = databaseName;
+        ConnectionPool.Config config = ConnectionPool.Config.from(props);
+        // statements are prepared on the server only when they are kept to be run again
+        String poolUrl = config.statementCacheSize() > 0 ? url + "?useServerPrepStmts=true" : url;
+        ConnectionPool old = pool;
+        pool = new ConnectionPool(config, () -> {
+            Connection conn = DriverManager.getConnection(poolUrl, user, password);
+            try {
+                conn.setCatalog(catalog);
+            } catch (SQLException ex) {
+                conn.close();
+                throw ex;
+            }
+            return conn;
+        });
+        if (old != null) {
+            old.close();
+        }
     }
 }
@@ -1,15 +1,54 @@
 package dataaccess;
 
 import models.GameData;
+import models.GameSummary;
 import com.google.gson.Gson;
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameStateCodec;
+import chess.InvalidMoveException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class GameDAO extends MySqlDataAccess {
 
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+    /**
+     * Which games a summary listing includes, as a condition on the game table
+     */
+    public enum ListFilter {
+        ALL("TRUE"),
+        // a seat is still free
+        OPEN("NOT g.finished AND (g.whiteUserID IS NULL OR g.blackUserID IS NULL)"),
+        // both seats are taken
+        IN_PROGRESS("NOT g.finished AND g.whiteUserID IS NOT NULL AND g.blackUserID IS NOT NULL"),
+        FINISHED("g.finished");
+
+        private final String condition;
+
+        ListFilter(String condition) {
+            this.condition = condition;
+        }
+    }
+
+    private final int snapshotInterval;
+
     public GameDAO() throws DataAccessException {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param snapshotInterval how many moves are recorded between writes of the
+     *                         full game state; loading replays at most this many
+     */
+    public GameDAO(int snapshotInterval) throws DataAccessException {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        this.snapshotInterval = snapshotInterval;
         String[] createStatements = {
         """
             CREATE TABLE IF NOT EXISTS game (
@@ -17,72 +56,247 @@ public class GameDAO extends MySqlDataAccess {
                 whiteUserID int DEFAULT NULL,
                 blackUserID int DEFAULT NULL,
                 gameName varchar(256) NOT NULL,
-                gameState TEXT NOT NULL,
+                state BLOB NOT NULL,
+                snapshotPly int NOT NULL DEFAULT 0,
+                finished BOOLEAN NOT NULL DEFAULT FALSE,
                 PRIMARY KEY (id),
+                INDEX idx_finished (finished, id),
                 CONSTRAINT fk_white FOREIGN KEY (whiteUserID) REFERENCES user (id),
                 CONSTRAINT fk_black FOREIGN KEY (blackUserID) REFERENCES user (id)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+        """,
+        """
+            CREATE TABLE IF NOT EXISTS game_move (
+                gameID int NOT NULL,
+                ply int NOT NULL,
+                move SMALLINT NOT NULL,
+                PRIMARY KEY (gameID, ply)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
         """
         };
         configureDatabase(createStatements);
+        migrateLegacyGameState();
+        addSnapshotColumn();
+        addFinishedColumn();
     }
 
+    // only used to read rows written before the binary game state
     private static final Gson GSON = new Gson();
 
+    /**
+     * Tables created before {@link GameStateCodec} hold each game as Gson text in a
+     * gameState column. This adds the binary state column, converts every such row
+     * and drops the old column, so it does nothing once a table has been migrated.
+     */
+    private void migrateLegacyGameState() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            if (!hasColumn(conn, "gameState")) {
+                return;
+            }
+            if (!hasColumn(conn, "state")) {
+                try (PreparedStatement ps = conn.prepareStatement("ALTER TABLE game ADD COLUMN state BLOB NULL")) {
+                    ps.executeUpdate();
+                }
+            }
+            try (PreparedStatement select = conn.prepareStatement("SELECT id, gameState FROM game WHERE state IS NULL");
+                 PreparedStatement update = conn.prepareStatement("UPDATE game SET state = ? WHERE id = ?");
+                 ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    ChessGame game = GSON.fromJson(rs.getString("gameState"), ChessGame.class);
+                    update.setBytes(1, GameStateCodec.encode(game));
+                    update.setInt(2, rs.getInt("id"));
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+            try (PreparedStatement drop = conn.prepareStatement("ALTER TABLE game DROP COLUMN gameState");
+                 PreparedStatement required = conn.prepareStatement("ALTER TABLE game MODIFY state BLOB NOT NULL")) {
+                drop.executeUpdate();
+                required.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: unable to migrate game state: " + e.getMessage());
+        }
+    }
+
+    // tables from before the move log hold only the latest state, which is its snapshot
+    private void addSnapshotColumn() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            if (hasColumn(conn, "snapshotPly")) {
+                return;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "ALTER TABLE game ADD COLUMN snapshotPly int NOT NULL DEFAULT 0")) {
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: unable to add snapshot column: " + e.getMessage());
+        }
+    }
+
+    // the column is filled in from each stored state, once, so listings need not read them
+    private void addFinishedColumn() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            if (hasColumn(conn, "finished")) {
+                return;
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    ALTER TABLE game ADD COLUMN finished BOOLEAN NOT NULL DEFAULT FALSE,
+                        ADD INDEX idx_finished (finished, id)
+                    """)) {
+                ps.executeUpdate();
+            }
+            try (PreparedStatement select = conn.prepareStatement("SELECT id, state FROM game");
+                 PreparedStatement update = conn.prepareStatement("UPDATE game SET finished = TRUE WHERE id = ?");
+                 ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    if (GameStateCodec.decode(rs.getBytes("state")).isGameOver()) {
+                        update.setInt(1, rs.getInt("id"));
+                        update.addBatch();
+                    }
+                }
+                update.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: unable to add finished column: " + e.getMessage());
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "game", column)) {
+            return rs.next();
+        }
+    }
+
     public int createGame(String gameName) throws DataAccessException {
-        String gameState = GSON.toJson(new ChessGame());
-        String sql = "INSERT INTO game (gameName, gameState) VALUES (?, ?)";
-        return executeUpdate(sql, gameName, gameState);
+        byte[] state = GameStateCodec.encode(new ChessGame());
+        String sql = "INSERT INTO game (gameName, state) VALUES (?, ?)";
+        return executeUpdate(sql, gameName, state);
     }
 
+    /**
+     * Loads a game from its latest snapshot and replays the moves recorded after it
+     *
+     * @return the game, or null if there is none with that ID
+     */
     public GameData getGame(int gameID) throws DataAccessException {
         String sql =
             """
-                SELECT g.id, g.gameName, g.gameState,
+                SELECT g.id, g.gameName, g.state, g.snapshotPly, m.ply, m.move,
                        white.username AS whiteUsername,
                        black.username AS blackUsername
                 FROM game g
                 LEFT JOIN user white ON g.whiteUserID = white.id
                 LEFT JOIN user black ON g.blackUserID = black.id
+                LEFT JOIN game_move m ON m.gameID = g.id AND m.ply > g.snapshotPly
                 WHERE g.id = ?
+                ORDER BY m.ply
             """;
+        Collection<GameData> games;
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, gameID);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return buildGameData(rs);
-                }
+                games = readGames(rs);
             }
         } catch (SQLException e) {
             throw new DataAccessException("Error: failed to find game: " + e.getMessage());
         }
-        return null;
+        return games.isEmpty() ? null : games.iterator().next();
     }
 
     public Collection<GameData> getAllGames() throws DataAccessException {
         String sql =
             """
-                SELECT g.id, g.gameName, g.gameState,
+                SELECT g.id, g.gameName, g.state, g.snapshotPly, m.ply, m.move,
                        white.username AS whiteUsername,
                        black.username AS blackUsername
                 FROM game g
                 LEFT JOIN user white ON g.whiteUserID = white.id
                 LEFT JOIN user black ON g.blackUserID = black.id
+                LEFT JOIN game_move m ON m.gameID = g.id AND m.ply > g.snapshotPly
+                ORDER BY g.id, m.ply
             """;
-        Collection<GameData> games = new ArrayList<>();
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                games.add(buildGameData(rs));
-            }
+            return readGames(rs);
         } catch (SQLException e) {
             throw new DataAccessException("Error: failed to get games: " + e.getMessage());
         }
+    }
+
+    /**
+     * Reads rows ordered by game and then by ply: one per move after each game's
+     * snapshot, or a single row with no move when there are none
+     */
+    private Collection<GameData> readGames(ResultSet rs) throws SQLException, DataAccessException {
+        Collection<GameData> games = new ArrayList<>();
+        GameData current = null;
+        while (rs.next()) {
+            if (current == null || current.getGameID() != rs.getInt("id")) {
+                current = buildGameData(rs);
+                games.add(current);
+            }
+            int move = rs.getInt("move");
+            if (!rs.wasNull()) {
+                replay(current, rs.getInt("ply"), move);
+            }
+        }
         return games;
     }
 
+    private static void replay(GameData gameData, int ply, int move) throws DataAccessException {
+        try {
+            gameData.getGame().makeMove(GameStateCodec.decodeMove(move));
+        } catch (InvalidMoveException e) {
+            throw new DataAccessException("Error: bad move " + ply + " in game " + gameData.getGameID()
+                    + ": " + e.getMessage());
+        }
+        gameData.setMoveCount(ply);
+    }
+
+    /**
+     * Lists the games after a given ID in ID order, reading only the names of the
+     * game and its players and never the game state. Passing the ID of the last
+     * game listed fetches the next page.
+     *
+     * @param filter      which games to include
+     * @param afterGameID list only games with a greater ID, or 0 to start at the first
+     * @param limit       the most games to list
+     * @return the page of games, read in full before the connection is returned
+     */
+    public List<GameSummary> listGameSummaries(ListFilter filter, int afterGameID, int limit)
+            throws DataAccessException {
+        String sql =
+            """
+                SELECT g.id, g.gameName,
+                       white.username AS whiteUsername,
+                       black.username AS blackUsername
+                FROM game g
+                LEFT JOIN user white ON g.whiteUserID = white.id
+                LEFT JOIN user black ON g.blackUserID = black.id
+                WHERE g.id > ? AND %s
+                ORDER BY g.id
+                LIMIT ?
+            """.formatted(filter.condition);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterGameID);
+            ps.setInt(2, limit);
+            List<GameSummary> games = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    games.add(new GameSummary(rs.getInt("id"), rs.getString("gameName"),
+                            rs.getString("whiteUsername"), rs.getString("blackUsername")));
+                }
+            }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: failed to list games: " + e.getMessage());
+        }
+    }
+
     public void setUser(String username, String color, int gameID) throws DataAccessException {
         String getUserID = "SELECT id FROM user WHERE username = ?";
         int userID = getUserID(username, getUserID);
@@ -113,14 +327,64 @@ public class GameDAO extends MySqlDataAccess {
         game.setGameID(rs.getInt("id"));
         game.setWhiteUsername(rs.getString("whiteUsername"));
         game.setBlackUsername(rs.getString("blackUsername"));
-        game.setGame(GSON.fromJson(rs.getString("gameState"), ChessGame.class));
+        game.setGame(GameStateCodec.decode(rs.getBytes("state")));
+        game.setMoveCount(rs.getInt("snapshotPly"));
         return game;
     }
 
+    /**
+     * Appends a move to the game's move log, and writes the full state as a new
+     * snapshot every {@link #getSnapshotInterval} moves and when the game ends.
+     * Both happen in one transaction, so a game never ends without being marked
+     * finished.
+     *
+     * @param ply       the number of the move in the game, from 1
+     * @param move      the move just made
+     * @param chessGame the game after the move
+     */
+    public void recordMove(int gameID, int ply, ChessMove move, ChessGame chessGame) throws DataAccessException {
+        boolean snapshot = ply % snapshotInterval == 0 || chessGame.isGameOver();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO game_move (gameID, ply, move) VALUES (?, ?, ?)")) {
+                insert.setInt(1, gameID);
+                insert.setInt(2, ply);
+                insert.setInt(3, GameStateCodec.encodeMove(move));
+                insert.executeUpdate();
+            }
+            if (snapshot) {
+                try (PreparedStatement update = conn.prepareStatement(
+                        "UPDATE game SET state = ?, snapshotPly = ?, finished = ? WHERE id = ?")) {
+                    update.setBytes(1, GameStateCodec.encode(chessGame));
+                    update.setInt(2, ply);
+                    update.setBoolean(3, chessGame.isGameOver());
+                    update.setInt(4, gameID);
+                    update.executeUpdate();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            // the pool rolls back whatever was not committed when the connection is returned
+            throw new DataAccessException("Error: failed to record move: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the game state outright, for changes that are not moves such as a
+     * resignation. It becomes the snapshot after every recorded move.
+     */
     public void updateGame(int gameID, ChessGame chessGame) throws DataAccessException {
-        String gameState = GSON.toJson(chessGame);
-        String sql = "UPDATE game SET gameState = ? WHERE id = ?";
-        executeUpdate(sql, gameState, gameID);
+        String sql = """
+                UPDATE game SET state = ?, finished = ?,
+                    snapshotPly = (SELECT COALESCE(MAX(ply), 0) FROM game_move WHERE gameID = ?)
+                WHERE id = ?
+                """;
+        executeUpdate(sql, GameStateCodec.encode(chessGame), chessGame.isGameOver() ? 1 : 0, gameID, gameID);
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
     }
 
     public void clearUser(String color, int gameID) throws DataAccessException {
@@ -131,5 +395,6 @@ public class GameDAO extends MySqlDataAccess {
 
     public void clear() throws DataAccessException {
         executeUpdate("TRUNCATE TABLE game");
+        executeUpdate("TRUNCATE TABLE game_move");
     }
 }
\ No newline at end of file
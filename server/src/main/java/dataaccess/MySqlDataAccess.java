@@ -14,15 +14,17 @@ public abstract class MySqlDataAccess {
                 switch (param) {
                     case String p -> ps.setString(i + 1, p);
                     case Integer p -> ps.setInt(i + 1, p);
+                    case byte[] p -> ps.setBytes(i + 1, p);
                     case null -> ps.setNull(i + 1, NULL);
                     default -> {
                     }
                 }
             }
             ps.executeUpdate();
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                return rs.getInt(1);
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
             }
             return 0;
         } catch (SQLException e) {
@@ -0,0 +1,213 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The prepared statements of one pooled connection, kept open between borrowers
+ * so running the same SQL again skips preparing it.
+ * <p>
+ * A statement is lent as a proxy whose {@code close()} closes the result sets it
+ * returned, clears its parameters and keeps it for the next caller. Each loan is
+ * numbered, and a proxy from an earlier loan refuses to run, so a borrower that kept
+ * a statement past returning its connection cannot reach the next borrower's
+ * parameters or results. When more than the capacity are cached, the least
+ * recently used is closed. Like its connection, a cache is only used by one thread
+ * at a time.
+ */
+final class StatementCache {
+
+    @FunctionalInterface
+    interface Preparer {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    private static final class Entry {
+        final PreparedStatement statement;
+        final List<ResultSet> results = new ArrayList<>();
+        // read by proxies that may have been kept by another thread
+        volatile int lease;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    // evicted while lent out, so closed when given back
+    private final List<Entry> retired = new ArrayList<>();
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final Runnable connectionFailed;
+
+    /**
+     * @param capacity         the most statements kept open
+     * @param hits             counts statements found in the cache
+     * @param misses           counts statements that had to be prepared
+     * @param connectionFailed called when a statement fails because its connection did
+     */
+    StatementCache(int capacity, LongAdder hits, LongAdder misses, Runnable connectionFailed) {
+        this.hits = hits;
+        this.misses = misses;
+        this.connectionFailed = connectionFailed;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                retire(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Lends the cached statement for a key, preparing and caching it if there is none.
+     * If the cached one is already lent out, as when a statement runs while another
+     * for the same SQL is open, a separate statement is prepared and not cached.
+     *
+     * @param key      the SQL, plus anything else passed to prepare it
+     * @param owner    the connection the statement reports as its own
+     * @param preparer prepares the statement on the pooled connection
+     */
+    PreparedStatement prepare(String key, Connection owner, Preparer preparer) throws SQLException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            entry = new Entry(preparer.prepare());
+            entries.put(key, entry);
+        } else if (entry.inUse) {
+            misses.increment();
+            return preparer.prepare();
+        } else {
+            hits.increment();
+        }
+        entry.inUse = true;
+        return lend(entry, owner);
+    }
+
+    private PreparedStatement lend(Entry entry, Connection owner) {
+        int lease = ++entry.lease;
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    boolean returned = lease != entry.lease;
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!returned) {
+                                entry.lease++;
+                                giveBack(entry);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return returned || entry.statement.isClosed();
+                        }
+                        case "getConnection" -> {
+                            return owner;
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                        }
+                    }
+                    if (returned) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    try {
+                        Object result = method.invoke(entry.statement, args);
+                        if (result instanceof ResultSet results) {
+                            entry.results.add(results);
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        if (ConnectionPool.isConnectionFailure(e.getCause())) {
+                            connectionFailed.run();
+                        }
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void giveBack(Entry entry) {
+        entry.inUse = false;
+        closeResults(entry);
+        if (entry.evicted) {
+            retired.remove(entry);
+            closeQuietly(entry);
+            return;
+        }
+        try {
+            entry.statement.clearParameters();
+        } catch (SQLException e) {
+            entries.values().remove(entry);
+            closeQuietly(entry);
+        }
+    }
+
+    private void retire(Entry entry) {
+        entry.evicted = true;
+        if (entry.inUse) {
+            retired.add(entry);
+        } else {
+            closeQuietly(entry);
+        }
+    }
+
+    /**
+     * Takes back every statement, for when the connection is returned to the pool,
+     * including any its borrower did not close; those can no longer be used
+     */
+    void releaseAll() {
+        // copied, as a statement that fails to clear is dropped from the map
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.inUse) {
+                entry.lease++;
+                giveBack(entry);
+            }
+        }
+        for (Entry entry : new ArrayList<>(retired)) {
+            entry.lease++;
+            giveBack(entry);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // a borrower may leave results open, such as those of getGeneratedKeys()
+    private static void closeResults(Entry entry) {
+        for (ResultSet results : entry.results) {
+            try {
+                results.close();
+            } catch (SQLException ignored) {
+                // a result set that cannot be closed is already unusable
+            }
+        }
+        entry.results.clear();
+    }
+
+    private static void closeQuietly(Entry entry) {
+        try {
+            entry.statement.close();
+        } catch (SQLException ignored) {
+            // the statement is being dropped either way
+        }
+    }
+}
@@ -5,7 +5,7 @@ import dataaccess.*;
 import exception.ResponseException;
 import io.javalin.*;
 import io.javalin.http.Context;
-import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import models.*;
 import services.*;
@@ -103,12 +103,13 @@ public class Server {
         AuthData auth = new AuthData("", ctx.header("Authorization"));
         try {
             ListGamesService listGamesRequest = new ListGamesService(auth, authDAO, gameDAO);
-            Collection<GameData> games = listGamesRequest.list();
-            var summaries = games.stream().map(g -> new GameSummary(g.getGameID(),
-                    g.getGameName(),
-                    g.getWhiteUsername(),
-                    g.getBlackUsername())).toList();
-            String message = new Gson().toJson(Map.of("games", summaries));
+            listGamesRequest.setPage(ctx.queryParam("filter"), ctx.queryParam("after"), ctx.queryParam("limit"));
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("games", listGamesRequest.summaries());
+            if (listGamesRequest.getNext() != null) {
+                response.put("next", listGamesRequest.getNext());
+            }
+            String message = new Gson().toJson(response);
             ctx.result(message);
         } catch (ResponseException ex) {
             exceptionHandler(ex, ctx);
@@ -116,22 +116,24 @@ public class WebSocketHandler {
             ChessMove move = command.getMove();
             game.makeMove(move);
 
-            // check for check/checkmate/stalemate
+            // check for check/checkmate/stalemate/draw
             ChessGame.TeamColor opponent = userColor == ChessGame.TeamColor.WHITE ?
                     ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
-            String statusNotification = null;
-            if (game.isInCheckmate(opponent)) {
-                statusNotification = username + " has put " + getColorName(opponent) + " in checkmate! Game over.";
+            GameStatus status = game.getStatus();
+            String statusNotification = switch (status) {
+                case CHECKMATE -> username + " has put " + getColorName(opponent) + " in checkmate! Game over.";
+                case STALEMATE -> "Stalemate! Game over.";
+                case DRAW_BY_REPETITION -> "Draw by threefold repetition! Game over.";
+                case DRAW_BY_FIFTY_MOVES -> "Draw by the fifty-move rule! Game over.";
+                case CHECK -> getColorName(opponent) + " is in check!";
+                case IN_PROGRESS -> null;
+            };
+            if (status.isOver()) {
                 game.setGameOver(true);
-            } else if (game.isInStalemate(opponent)) {
-                statusNotification = "Stalemate! Game over.";
-                game.setGameOver(true);
-            } else if (game.isInCheck(opponent)) {
-                statusNotification = getColorName(opponent) + " is in check!";
             }
 
             // save game
-            gameDAO.updateGame(command.getGameID(), game);
+            gameDAO.recordMove(command.getGameID(), gameData.getMoveCount() + 1, move, game);
 
             // send LOAD_GAME to all clients
             connections.broadcastAll(command.getGameID(), ServerMessage.loadGame(game));
@@ -141,7 +143,7 @@ public class WebSocketHandler {
             connections.broadcast(command.getGameID(), username,
                     ServerMessage.notification(username + " moved " + moveDesc));
 
-            // send check/checkmate/stalemate notification to all
+            // send check/checkmate/stalemate/draw notification to all
             if (statusNotification != null) {
                 connections.broadcastAll(command.getGameID(),
                         ServerMessage.notification(statusNotification));
@@ -4,14 +4,23 @@ import dataaccess.*;
 import exception.ResponseException;
 import models.AuthData;
 import models.GameData;
+import models.GameSummary;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 
 import static exception.ResponseException.Code.*;
 
 public class ListGamesService extends Service {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final GameDAO gameDAO;
+    private GameDAO.ListFilter filter = GameDAO.ListFilter.ALL;
+    private int afterGameID = 0;
+    private int limit = 0;
+    private Integer next;
 
     public ListGamesService(AuthData auth, AuthDAO authDAO, GameDAO gameDAO) throws ResponseException {
         this.gameDAO = gameDAO;
@@ -25,4 +34,55 @@ public class ListGamesService extends Service {
             throw new ResponseException(ServerError, e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets which games {@link #summaries} lists, from the request's query parameters.
+     * Any of them may be null; without a limit every matching game is listed.
+     *
+     * @param filter "all", "open", "in_progress" or "finished"
+     * @param after  list only games with a greater ID, for the next page
+     * @param limit  the most games to list; larger limits are cut to {@link #MAX_PAGE_SIZE},
+     *               and {@link #getNext} says where the rest start
+     */
+    public void setPage(String filter, String after, String limit) throws ResponseException {
+        try {
+            if (filter != null) {
+                this.filter = GameDAO.ListFilter.valueOf(filter.toUpperCase(Locale.ROOT).replace('-', '_'));
+            }
+            this.afterGameID = after == null ? 0 : Integer.parseInt(after);
+            this.limit = limit == null ? 0 : Integer.parseInt(limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseException(ClientError, "Error: bad request");
+        }
+        if (afterGameID < 0 || (limit != null && this.limit < 1)) {
+            throw new ResponseException(ClientError, "Error: bad request");
+        }
+        this.limit = Math.min(this.limit, MAX_PAGE_SIZE);
+    }
+
+    public List<GameSummary> summaries() throws ResponseException {
+        try {
+            if (limit == 0) {
+                return gameDAO.listGameSummaries(filter, afterGameID, Integer.MAX_VALUE);
+            }
+            // one game past the page says whether there is a next page
+            List<GameSummary> games = gameDAO.listGameSummaries(filter, afterGameID, limit + 1);
+            next = null;
+            if (games.size() > limit) {
+                games = games.subList(0, limit);
+                next = games.get(limit - 1).getGameID();
+            }
+            return games;
+        } catch (DataAccessException e) {
+            throw new ResponseException(ServerError, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the game ID to pass as "after" for the next page, or null if
+     * {@link #summaries} listed the last matching game
+     */
+    public Integer getNext() {
+        return next;
+    }
+}
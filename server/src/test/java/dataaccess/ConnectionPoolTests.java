@@ -0,0 +1,273 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+
+    // stands in for a MySQL connection, counting how often each is closed
+    private static final class FakeConnections implements ConnectionPool.ConnectionFactory {
+        final List<Connection> opened = new ArrayList<>();
+        final List<AtomicBoolean> closed = new ArrayList<>();
+        boolean valid = true;
+        boolean failing;
+
+        @Override
+        public Connection open() throws SQLException {
+            if (failing) {
+                throw new SQLException("Communications link failure", "08S01");
+            }
+            AtomicBoolean isClosed = new AtomicBoolean();
+            Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            isClosed.set(true);
+                            yield null;
+                        }
+                        case "isClosed" -> isClosed.get();
+                        case "isValid" -> valid && !isClosed.get();
+                        case "getAutoCommit" -> true;
+                        case "nativeSQL" -> throw new SQLException("Connection reset", "08S01");
+                        default -> null;
+                    });
+            opened.add(connection);
+            closed.add(isClosed);
+            return connection;
+        }
+    }
+
+    private static ConnectionPool.Config config(int maxSize, int maxIdle, long acquireTimeoutMillis) {
+        return new ConnectionPool.Config(maxSize, 0, maxIdle, acquireTimeoutMillis, 5000, 600_000, 0, false, 0, 0);
+    }
+
+    @Test
+    @DisplayName("Pool - Reuses Returned Connections")
+    void reuses() throws SQLException {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(config(4, 4, 100), factory);
+        for (int i = 0; i < 10; i++) {
+            try (Connection conn = pool.acquire()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        assertEquals(1, factory.opened.size());
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(10, stats.acquired());
+        assertEquals(1, stats.created());
+        assertEquals(1, stats.idle());
+
+        Connection conn = pool.acquire();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.setAutoCommit(false));
+        assertDoesNotThrow(conn::close);
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    @DisplayName("Pool - Times Out When Full")
+    void timesOut() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(config(2, 2, 50), new FakeConnections());
+        Connection first = pool.acquire();
+        pool.acquire();
+        assertThrows(SQLTimeoutException.class, pool::acquire);
+        assertEquals(1, pool.getStats().timeouts());
+
+        first.close();
+        assertDoesNotThrow(() -> pool.acquire().close());
+        assertTrue(pool.getStats().maxWaitNanos() >= 0);
+    }
+
+    @Test
+    @DisplayName("Pool - Waiting Borrower Gets Returned Connection")
+    void waits() throws Exception {
+        ConnectionPool pool = new ConnectionPool(config(1, 1, 5000), new FakeConnections());
+        Connection held = pool.acquire();
+        Thread returner = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                held.close();
+            } catch (InterruptedException | SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        returner.start();
+        try (Connection conn = pool.acquire()) {
+            assertFalse(conn.isClosed());
+        }
+        returner.join();
+        assertTrue(pool.getStats().maxWaitNanos() > 0);
+        assertEquals(1, pool.getStats().created());
+    }
+
+    @Test
+    @DisplayName("Pool - Closes Idle Connections Beyond Max Idle")
+    void maxIdle() throws SQLException {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(config(3, 1, 100), factory);
+        Connection a = pool.acquire();
+        Connection b = pool.acquire();
+        a.close();
+        b.close();
+        assertEquals(1, pool.getStats().idle());
+        assertEquals(1, pool.getStats().open());
+        assertTrue(factory.closed.get(1).get());
+    }
+
+    @Test
+    @DisplayName("Pool - Replaces Invalid And Broken Connections")
+    void validation() throws SQLException {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(new ConnectionPool.Config(2, 0, 2, 100, 0, 600_000, 0, false, 0, 0),
+                factory);
+        pool.acquire().close();
+        factory.valid = false;
+        pool.acquire().close();
+        assertEquals(2, factory.opened.size());
+        assertTrue(factory.closed.get(0).get());
+
+        factory.valid = true;
+        Connection conn = pool.acquire();
+        assertThrows(SQLException.class, () -> conn.nativeSQL("SELECT 1"));
+        conn.close();
+        assertEquals(0, pool.getStats().idle());
+        assertEquals(2, pool.getStats().destroyed());
+    }
+
+    @Test
+    @DisplayName("Pool - Failed Opens Free Their Slot")
+    void failedOpen() {
+        FakeConnections factory = new FakeConnections();
+        factory.failing = true;
+        ConnectionPool pool = new ConnectionPool(config(1, 1, 100), factory);
+        assertThrows(SQLException.class, pool::acquire);
+        assertThrows(SQLException.class, pool::acquire);
+        assertEquals(0, pool.getStats().open());
+        assertEquals(0, pool.getStats().timeouts());
+    }
+
+    @Test
+    @DisplayName("Pool - Reports Leaked Connections")
+    void leaks() throws Exception {
+        for (boolean stackTraces : new boolean[]{true, false}) {
+            ConnectionPool.Config config = new ConnectionPool.Config(2, 0, 2, 100, 5000, 600_000, 1, stackTraces, 0, 0);
+            ConnectionPool pool = new ConnectionPool(config, new FakeConnections());
+            Connection leaked = pool.acquire();
+            Thread.sleep(10);
+            pool.housekeep();
+            pool.housekeep();
+            assertEquals(1, pool.getStats().leaks());
+            leaked.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Pool - Housekeeping Runs Without Traffic")
+    void housekeeping() throws Exception {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(new ConnectionPool.Config(2, 0, 2, 100, 5000, 1, 1, false, 5, 0),
+                factory);
+        Connection leaked = pool.acquire();
+        pool.acquire().close();
+        // nothing borrows again, so only the housekeeping thread can find the leak and the idle connection
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((pool.getStats().leaks() == 0 || !factory.closed.get(1).get())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, pool.getStats().leaks());
+        assertTrue(factory.closed.get(1).get());
+        assertEquals(0, pool.getStats().idle());
+        leaked.close();
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Pool - Keeps Min Idle Connections Open")
+    void minIdle() throws SQLException {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(new ConnectionPool.Config(3, 2, 3, 100, 5000, 600_000, 0, false, 0, 0),
+                factory);
+        pool.housekeep();
+        assertEquals(2, pool.getStats().idle());
+        assertEquals(2, factory.opened.size());
+
+        // both are borrowed without opening more, then replaced up to the pool's size
+        Connection a = pool.acquire();
+        Connection b = pool.acquire();
+        assertEquals(2, factory.opened.size());
+        pool.housekeep();
+        assertEquals(1, pool.getStats().idle());
+        assertEquals(3, pool.getStats().open());
+
+        a.close();
+        b.close();
+        assertEquals(3, pool.getStats().idle());
+
+        // while the database is down nothing is opened, and the slots are not lost
+        FakeConnections down = new FakeConnections();
+        down.failing = true;
+        ConnectionPool outage = new ConnectionPool(
+                new ConnectionPool.Config(2, 2, 2, 100, 5000, 600_000, 0, false, 0, 0), down);
+        outage.housekeep();
+        assertEquals(0, outage.getStats().open());
+        down.failing = false;
+        outage.housekeep();
+        assertEquals(2, outage.getStats().idle());
+    }
+
+    @Test
+    @DisplayName("Pool - Fills Min Idle On Its Own")
+    void prefill() throws Exception {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(new ConnectionPool.Config(4, 2, 4, 100, 5000, 600_000, 0, false, 5, 0),
+                factory);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getStats().idle() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, pool.getStats().idle());
+        pool.close();
+        assertEquals(0, pool.getStats().open());
+    }
+
+    @Test
+    @DisplayName("Pool - Closing Refuses Borrowers")
+    void close() throws SQLException {
+        FakeConnections factory = new FakeConnections();
+        ConnectionPool pool = new ConnectionPool(config(2, 2, 100), factory);
+        pool.acquire().close();
+        Connection lent = pool.acquire();
+        pool.close();
+        assertThrows(SQLException.class, pool::acquire);
+        lent.close();
+        assertTrue(factory.closed.get(0).get());
+        assertEquals(0, pool.getStats().open());
+    }
+
+    @Test
+    @DisplayName("Pool - Settings From Properties")
+    void settings() {
+        Properties props = new Properties();
+        props.setProperty("db.pool.maxSize", "20");
+        props.setProperty("db.pool.maxIdle", "8");
+        ConnectionPool.Config config = ConnectionPool.Config.from(props);
+        assertEquals(20, config.maxSize());
+        assertEquals(8, config.maxIdle());
+        assertEquals(2, config.minIdle());
+        assertFalse(config.leakStackTraces());
+        assertEquals(1000, config.housekeepingMillis());
+        props.setProperty("db.pool.minIdle", "9");
+        assertThrows(IllegalArgumentException.class, () -> ConnectionPool.Config.from(props));
+    }
+}
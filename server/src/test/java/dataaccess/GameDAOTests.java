@@ -1,7 +1,12 @@
 package dataaccess;
 
+import com.google.gson.Gson;
 import models.GameData;
 import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -202,4 +207,186 @@ public class GameDAOTests {
         GameData result = gameDAO.getGame(gameID);
         assertEquals("testUser", result.getWhiteUsername());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Game State - Legacy Gson Rows Are Migrated")
+    void legacyGameStateMigrated() throws DataAccessException, SQLException {
+        // rebuild the table the way it was before the binary game state
+        chess.ChessGame legacy = new chess.ChessGame();
+        legacy.setTeamTurn(chess.ChessGame.TeamColor.BLACK);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement drop = conn.prepareStatement("DROP TABLE game");
+                 PreparedStatement create = conn.prepareStatement("""
+                         CREATE TABLE game (
+                             id int NOT NULL AUTO_INCREMENT,
+                             whiteUserID int DEFAULT NULL,
+                             blackUserID int DEFAULT NULL,
+                             gameName varchar(256) NOT NULL,
+                             gameState TEXT NOT NULL,
+                             PRIMARY KEY (id)
+                         )
+                         """)) {
+                drop.executeUpdate();
+                create.executeUpdate();
+            }
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO game (id, gameName, gameState) VALUES (7, 'legacyGame', ?)")) {
+                insert.setString(1, new Gson().toJson(legacy));
+                insert.executeUpdate();
+            }
+        }
+
+        GameDAO migrated = new GameDAO();
+        GameData result = migrated.getGame(7);
+        assertEquals("legacyGame", result.getGameName());
+        assertEquals(legacy, result.getGame());
+        assertEquals(chess.ChessGame.TeamColor.BLACK, result.getGame().getTeamTurn());
+        // and new games are written in the new form
+        int gameID = migrated.createGame("newGame");
+        assertNotNull(migrated.getGame(gameID).getGame());
+    }
+
+    // move log
+
+    private static chess.ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new chess.ChessMove(new chess.ChessPosition(startRow, startCol),
+                new chess.ChessPosition(endRow, endCol), null);
+    }
+
+    private static int countRows(String sql) throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             java.sql.ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Move Log - Moves Are Replayed On Load")
+    void recordMovePositive() throws DataAccessException, chess.InvalidMoveException, SQLException {
+        GameDAO logDAO = new GameDAO(4);
+        int gameID = logDAO.createGame("testGame");
+        chess.ChessGame expected = new chess.ChessGame();
+        chess.ChessMove[] moves = {move(2, 5, 4, 5), move(7, 5, 5, 5), move(1, 7, 3, 6), move(8, 2, 6, 3),
+            move(1, 6, 4, 3), move(8, 7, 6, 6)};
+        for (chess.ChessMove move : moves) {
+            GameData loaded = logDAO.getGame(gameID);
+            assertEquals(expected, loaded.getGame());
+            expected.makeMove(move);
+            logDAO.recordMove(gameID, loaded.getMoveCount() + 1, move, expected);
+        }
+        GameData result = logDAO.getGame(gameID);
+        assertEquals(6, result.getMoveCount());
+        assertEquals(expected, result.getGame());
+        assertEquals(expected.toFen(), result.getGame().toFen());
+        assertEquals(6, countRows("SELECT COUNT(*) FROM game_move WHERE gameID = " + gameID));
+        // the fourth move was snapshotted, so only two are replayed
+        assertEquals(4, countRows("SELECT snapshotPly FROM game WHERE id = " + gameID));
+        assertEquals(expected, logDAO.getAllGames().iterator().next().getGame());
+    }
+
+    @Test
+    @DisplayName("Move Log - Same Move Twice")
+    void recordMoveNegative() throws DataAccessException {
+        int gameID = gameDAO.createGame("testGame");
+        chess.ChessGame game = new chess.ChessGame();
+        gameDAO.recordMove(gameID, 1, move(2, 5, 4, 5), game);
+        assertThrows(DataAccessException.class, () -> gameDAO.recordMove(gameID, 1, move(2, 4, 4, 4), game));
+    }
+
+    @Test
+    @DisplayName("Move Log - Game End Is Snapshotted")
+    void recordMoveGameOver() throws DataAccessException, chess.InvalidMoveException, SQLException {
+        int gameID = gameDAO.createGame("testGame");
+        chess.ChessGame game = new chess.ChessGame();
+        chess.ChessMove[] foolsMate = {move(2, 6, 3, 6), move(7, 5, 5, 5), move(2, 7, 4, 7), move(8, 4, 4, 8)};
+        for (int ply = 1; ply <= foolsMate.length; ply++) {
+            game.makeMove(foolsMate[ply - 1]);
+            if (game.getStatus().isOver()) {
+                game.setGameOver(true);
+            }
+            gameDAO.recordMove(gameID, ply, foolsMate[ply - 1], game);
+        }
+        assertEquals(4, countRows("SELECT snapshotPly FROM game WHERE id = " + gameID));
+        GameData result = gameDAO.getGame(gameID);
+        assertTrue(result.getGame().isGameOver());
+        assertEquals(chess.GameStatus.CHECKMATE, result.getGame().getStatus());
+    }
+
+    @Test
+    @DisplayName("Move Log - Resignation After Moves")
+    void updateGameAfterMoves() throws DataAccessException, chess.InvalidMoveException {
+        int gameID = gameDAO.createGame("testGame");
+        chess.ChessGame game = new chess.ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        gameDAO.recordMove(gameID, 1, move(2, 5, 4, 5), game);
+        game.setGameOver(true);
+        gameDAO.updateGame(gameID, game);
+        // the resignation is the snapshot, so the move is not replayed onto it again
+        GameData result = gameDAO.getGame(gameID);
+        assertEquals(1, result.getMoveCount());
+        assertEquals(game, result.getGame());
+        assertTrue(result.getGame().isGameOver());
+    }
+
+    @Test
+    @DisplayName("Move Log - Cleared With Games")
+    void clearMoveLog() throws DataAccessException, SQLException {
+        int gameID = gameDAO.createGame("testGame");
+        gameDAO.recordMove(gameID, 1, move(2, 5, 4, 5), new chess.ChessGame());
+        gameDAO.clear();
+        assertEquals(0, countRows("SELECT COUNT(*) FROM game_move"));
+        assertThrows(IllegalArgumentException.class, () -> new GameDAO(0));
+    }
+
+    // game summaries
+
+    private static java.util.List<Integer> listIDs(GameDAO.ListFilter filter, int after, int limit)
+            throws DataAccessException {
+        return gameDAO.listGameSummaries(filter, after, limit).stream().map(models.GameSummary::getGameID).toList();
+    }
+
+    @Test
+    @DisplayName("Game Summaries - Filters")
+    void listGameSummariesFilters() throws DataAccessException {
+        dataaccess.UserDAO userDAO = new dataaccess.UserDAO();
+        userDAO.createUser(new models.UserData("white", "password", "white@mail.com"));
+        userDAO.createUser(new models.UserData("black", "password", "black@mail.com"));
+        int open = gameDAO.createGame("open");
+        int playing = gameDAO.createGame("playing");
+        int finished = gameDAO.createGame("finished");
+        for (int gameID : new int[]{playing, finished}) {
+            gameDAO.setUser("white", "WHITE", gameID);
+            gameDAO.setUser("black", "BLACK", gameID);
+        }
+        chess.ChessGame resigned = new chess.ChessGame();
+        resigned.setGameOver(true);
+        gameDAO.updateGame(finished, resigned);
+
+        assertEquals(java.util.List.of(open, playing, finished), listIDs(GameDAO.ListFilter.ALL, 0, 10));
+        assertEquals(java.util.List.of(open), listIDs(GameDAO.ListFilter.OPEN, 0, 10));
+        assertEquals(java.util.List.of(playing), listIDs(GameDAO.ListFilter.IN_PROGRESS, 0, 10));
+        assertEquals(java.util.List.of(finished), listIDs(GameDAO.ListFilter.FINISHED, 0, 10));
+
+        java.util.List<models.GameSummary> summaries = gameDAO.listGameSummaries(GameDAO.ListFilter.IN_PROGRESS, 0, 10);
+        assertEquals("playing", summaries.get(0).getGameName());
+        assertEquals("white", summaries.get(0).getWhiteUsername());
+        assertEquals("black", summaries.get(0).getBlackUsername());
+    }
+
+    @Test
+    @DisplayName("Game Summaries - Pages")
+    void listGameSummariesPages() throws DataAccessException {
+        java.util.List<Integer> created = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(gameDAO.createGame("game" + i));
+        }
+        java.util.List<Integer> first = listIDs(GameDAO.ListFilter.ALL, 0, 2);
+        assertEquals(created.subList(0, 2), first);
+        java.util.List<Integer> second = listIDs(GameDAO.ListFilter.ALL, first.get(1), 2);
+        assertEquals(created.subList(2, 4), second);
+        assertEquals(created.subList(4, 5), listIDs(GameDAO.ListFilter.ALL, second.get(1), 2));
+        assertTrue(listIDs(GameDAO.ListFilter.ALL, created.get(4), 2).isEmpty());
+    }
+}
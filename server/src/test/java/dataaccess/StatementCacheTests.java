@@ -0,0 +1,227 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTests {
+
+    private static final String GET_AUTH = "SELECT username FROM auth WHERE authToken = ?";
+    private static final String GET_USER = "SELECT * FROM user WHERE username = ?";
+    private static final String GET_GAME = "SELECT * FROM game WHERE id = ?";
+
+    private final List<String> prepared = new ArrayList<>();
+    private final List<AtomicBoolean> closed = new ArrayList<>();
+    private final List<AtomicBoolean> resultsClosed = new ArrayList<>();
+
+    private ResultSet fakeResults() {
+        AtomicBoolean isClosed = new AtomicBoolean();
+        resultsClosed.add(isClosed);
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        isClosed.set(true);
+                        yield null;
+                    }
+                    case "next" -> false;
+                    default -> null;
+                });
+    }
+
+    private PreparedStatement fakeStatement(String sql) {
+        prepared.add(sql);
+        AtomicBoolean isClosed = new AtomicBoolean();
+        closed.add(isClosed);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        isClosed.set(true);
+                        yield null;
+                    }
+                    case "isClosed" -> isClosed.get();
+                    case "executeQuery", "getGeneratedKeys" -> fakeResults();
+                    case "executeUpdate" -> {
+                        if (sql.startsWith("DROP")) {
+                            throw new SQLException("Communications link failure", "08S01");
+                        }
+                        yield 1;
+                    }
+                    default -> null;
+                });
+    }
+
+    private ConnectionPool pool(int cacheSize) {
+        return new ConnectionPool(new ConnectionPool.Config(1, 0, 1, 100, 5000, 600_000, 0, false, 0, cacheSize),
+                () -> (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                            case "prepareStatement" -> fakeStatement((String) args[0]);
+                            case "getAutoCommit" -> true;
+                            default -> null;
+                        }));
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Reuses Statements Across Borrowers")
+    void reuses() throws SQLException {
+        ConnectionPool pool = pool(8);
+        for (int i = 0; i < 5; i++) {
+            try (Connection conn = pool.acquire();
+                 PreparedStatement ps = conn.prepareStatement(GET_AUTH)) {
+                ps.setString(1, "token" + i);
+                assertSame(conn, ps.getConnection());
+            }
+        }
+        assertEquals(List.of(GET_AUTH), prepared);
+        assertFalse(closed.get(0).get());
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(4, stats.statementHits());
+        assertEquals(1, stats.statementMisses());
+        assertEquals(0.8, stats.statementHitRate(), 1e-9);
+
+        // asking for generated keys is a different statement
+        try (Connection conn = pool.acquire();
+             PreparedStatement ps = conn.prepareStatement(GET_AUTH, Statement.RETURN_GENERATED_KEYS)) {
+            assertFalse(ps.isClosed());
+        }
+        assertEquals(2, prepared.size());
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Closed Statements Cannot Be Used")
+    void closedStatement() throws SQLException {
+        ConnectionPool pool = pool(8);
+        try (Connection conn = pool.acquire()) {
+            PreparedStatement ps = conn.prepareStatement(GET_USER);
+            ps.close();
+            assertTrue(ps.isClosed());
+            assertThrows(SQLException.class, ps::executeQuery);
+            assertFalse(closed.get(0).get());
+        }
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Same SQL Open Twice")
+    void nested() throws SQLException {
+        ConnectionPool pool = pool(8);
+        try (Connection conn = pool.acquire();
+             PreparedStatement outer = conn.prepareStatement(GET_GAME);
+             PreparedStatement inner = conn.prepareStatement(GET_GAME)) {
+            assertNotSame(outer, inner);
+        }
+        // the second was not cached, so closing it really closed it
+        assertEquals(2, prepared.size());
+        assertFalse(closed.get(0).get());
+        assertTrue(closed.get(1).get());
+        assertEquals(2, pool.getStats().statementMisses());
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Evicts Least Recently Used")
+    void evicts() throws SQLException {
+        ConnectionPool pool = pool(2);
+        try (Connection conn = pool.acquire()) {
+            conn.prepareStatement(GET_AUTH).close();
+            conn.prepareStatement(GET_USER).close();
+            conn.prepareStatement(GET_AUTH).close();
+            // the user statement is the least recently used
+            conn.prepareStatement(GET_GAME).close();
+            assertTrue(closed.get(1).get());
+            assertFalse(closed.get(0).get());
+            conn.prepareStatement(GET_AUTH).close();
+        }
+        assertEquals(List.of(GET_AUTH, GET_USER, GET_GAME), prepared);
+        assertEquals(2, pool.getStats().statementHits());
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Unclosed Statements Are Taken Back")
+    void unclosed() throws SQLException {
+        ConnectionPool pool = pool(8);
+        try (Connection conn = pool.acquire()) {
+            conn.prepareStatement(GET_AUTH);
+        }
+        try (Connection conn = pool.acquire()) {
+            conn.prepareStatement(GET_AUTH).close();
+        }
+        assertEquals(1, prepared.size());
+        assertEquals(1, pool.getStats().statementHits());
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Kept Statements Cannot Reach The Next Borrower")
+    void staleStatement() throws SQLException {
+        ConnectionPool pool = pool(8);
+        PreparedStatement stale;
+        try (Connection conn = pool.acquire()) {
+            stale = conn.prepareStatement(GET_AUTH);
+            stale.setString(1, "first");
+        }
+        try (Connection conn = pool.acquire();
+             PreparedStatement ps = conn.prepareStatement(GET_AUTH)) {
+            assertEquals(1, prepared.size());
+            assertTrue(stale.isClosed());
+            assertThrows(SQLException.class, () -> stale.setString(1, "second"));
+            assertThrows(SQLException.class, stale::executeQuery);
+            // closing the stale one does not take the statement back from its new borrower
+            stale.close();
+            assertFalse(ps.isClosed());
+            assertDoesNotThrow(() -> ps.setString(1, "second"));
+        }
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Results Closed With Their Statement")
+    void closesResults() throws SQLException {
+        ConnectionPool pool = pool(8);
+        try (Connection conn = pool.acquire();
+             PreparedStatement ps = conn.prepareStatement(GET_AUTH, Statement.RETURN_GENERATED_KEYS)) {
+            ps.executeUpdate();
+            ps.getGeneratedKeys();
+            ps.executeQuery();
+        }
+        assertEquals(2, resultsClosed.size());
+        assertTrue(resultsClosed.get(0).get());
+        assertTrue(resultsClosed.get(1).get());
+        // results left open by a statement that was never closed go when the connection does
+        try (Connection conn = pool.acquire()) {
+            conn.prepareStatement(GET_USER).executeQuery();
+        }
+        assertTrue(resultsClosed.get(2).get());
+        assertFalse(closed.get(1).get());
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Failed Connection Is Not Reused")
+    void brokenConnection() throws SQLException {
+        ConnectionPool pool = pool(8);
+        try (Connection conn = pool.acquire();
+             PreparedStatement ps = conn.prepareStatement("DROP TABLE game")) {
+            assertThrows(SQLException.class, ps::executeUpdate);
+        }
+        assertEquals(0, pool.getStats().idle());
+        assertEquals(1, pool.getStats().destroyed());
+    }
+
+    @Test
+    @DisplayName("Statement Cache - Disabled")
+    void disabled() throws SQLException {
+        ConnectionPool pool = pool(0);
+        for (int i = 0; i < 2; i++) {
+            try (Connection conn = pool.acquire()) {
+                conn.prepareStatement(GET_AUTH).close();
+            }
+        }
+        assertEquals(2, prepared.size());
+        assertEquals(0, pool.getStats().statementHits() + pool.getStats().statementMisses());
+    }
+}
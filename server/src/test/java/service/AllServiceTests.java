@@ -175,6 +175,44 @@ public class AllServiceTests {
         assertEquals(ResponseException.Code.Unauthorized, ex.code());
     }
 
+    @Test
+    @Order(10)
+    @DisplayName("List Game Summaries - Filter And Page")
+    void listGameSummariesPositive() throws ResponseException {
+        AuthData auth = registerAndLogin();
+        GameData first = new CreateGameService(auth, new GameData("game1"), authDAO, gameDAO).addGame();
+        new CreateGameService(auth, new GameData("game2"), authDAO, gameDAO).addGame();
+        ListGamesService service = new ListGamesService(auth, authDAO, gameDAO);
+        service.setPage("open", String.valueOf(first.getGameID()), "10");
+        java.util.List<GameSummary> summaries = service.summaries();
+        assertEquals(1, summaries.size());
+        assertEquals("game2", summaries.get(0).getGameName());
+        // a full page says where the next one starts
+        service.setPage(null, null, "1");
+        assertEquals(1, service.summaries().size());
+        assertEquals(Integer.valueOf(first.getGameID()), service.getNext());
+        // pages larger than the maximum are cut down to it rather than refused
+        service.setPage(null, null, "1000000");
+        assertEquals(2, service.summaries().size());
+        assertNull(service.getNext());
+        // without parameters every game is listed, as before paging
+        service.setPage(null, null, null);
+        assertEquals(2, service.summaries().size());
+        assertNull(service.getNext());
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("List Game Summaries - Bad Page")
+    void listGameSummariesNegative() throws ResponseException {
+        AuthData auth = registerAndLogin();
+        ListGamesService service = new ListGamesService(auth, authDAO, gameDAO);
+        ResponseException ex = assertThrows(ResponseException.class, () -> service.setPage("someday", null, null));
+        assertEquals(ResponseException.Code.ClientError, ex.code());
+        assertThrows(ResponseException.class, () -> service.setPage(null, "x", null));
+        assertThrows(ResponseException.class, () -> service.setPage(null, null, "0"));
+    }
+
     // ### JoinGameService ###
 
     @Test
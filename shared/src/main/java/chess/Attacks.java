@@ -0,0 +1,174 @@
+package chess;
+
+/**
+ * Precomputed attack sets, and whether a square is attacked.
+ * <p>
+ * Knight, king and pawn attacks from every square are worked out once when the
+ * class loads, as are the rays running from every square in each of the eight
+ * directions. A ray cut off at its first piece is the ray with the blocker's own
+ * ray, in the same direction, removed. Rook and bishop attacks come from the
+ * {@link Magics} tables, which are filled in from these rays.
+ * <p>
+ * Whether a square is attacked is answered by looking outward from it: the knight
+ * attacks from the square that land on an enemy knight mean the knight attacks the
+ * square, and likewise for kings, pawns and the rays of rooks, bishops and queens.
+ */
+public class Attacks {
+
+    // direction indexes into RAYS; the first four step to higher square numbers
+    static final int NORTH = 0;
+    static final int NORTH_EAST = 1;
+    static final int EAST = 2;
+    static final int NORTH_WEST = 3;
+    static final int SOUTH = 4;
+    static final int SOUTH_WEST = 5;
+    static final int WEST = 6;
+    static final int SOUTH_EAST = 7;
+
+    private static final int[][] DIRECTIONS = {{1,0},{1,1},{0,1},{1,-1},{-1,0},{-1,-1},{0,-1},{-1,1}};
+    private static final int[][] KNIGHT_STEPS = {{1,-2},{2,-1},{2,1},{1,2},{-1,2},{-2,1},{-2,-1},{-1,-2}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+    private static final long[][] RAYS = new long[8][64];
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = Bitboard.row(square);
+            int column = Bitboard.column(square);
+            for (int[] step : KNIGHT_STEPS) {
+                KNIGHT[square] |= bit(row + step[0], column + step[1]);
+            }
+            for (int direction = 0; direction < 8; direction++) {
+                int[] step = DIRECTIONS[direction];
+                KING[square] |= bit(row + step[0], column + step[1]);
+                for (int distance = 1; distance < 8; distance++) {
+                    RAYS[direction][square] |= bit(row + step[0] * distance, column + step[1] * distance);
+                }
+            }
+            PAWN[Bitboard.WHITE][square] = bit(row + 1, column - 1) | bit(row + 1, column + 1);
+            PAWN[Bitboard.BLACK][square] = bit(row - 1, column - 1) | bit(row - 1, column + 1);
+        }
+        for (int square = 0; square < 64; square++) {
+            for (int direction = 0; direction < 8; direction++) {
+                long ray = RAYS[direction][square];
+                long line = ray | RAYS[(direction + 4) % 8][square] | (1L << square);
+                for (long targets = ray; targets != 0; targets &= targets - 1) {
+                    int target = Long.numberOfTrailingZeros(targets);
+                    BETWEEN[square][target] = ray & ~RAYS[direction][target] & ~(1L << target);
+                    LINE[square][target] = line;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    private static long bit(int row, int column) {
+        return Bitboard.onBoard(row, column) ? 1L << Bitboard.square(row, column) : 0L;
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return the squares a pawn of the team on the square could capture on
+     */
+    public static long pawn(int team, int square) {
+        return PAWN[team][square];
+    }
+
+    /**
+     * @return every square from the square to the edge in one direction, not
+     * including the square itself
+     */
+    static long ray(int direction, int square) {
+        return RAYS[direction][square];
+    }
+
+    /**
+     * @return the squares strictly between two squares on the same row, column or
+     * diagonal, or nothing if they do not share one
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the whole row, column or diagonal through two squares, edge to edge,
+     * or nothing if they do not share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * @return the squares along one ray up to and including the first occupied one
+     */
+    static long rayAttacks(int direction, int square, long occupied) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        int blocker = direction < SOUTH ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[direction][blocker];
+    }
+
+    public static long rook(int square, long occupied) {
+        return Magics.rook(square, occupied);
+    }
+
+    public static long bishop(int square, long occupied) {
+        return Magics.bishop(square, occupied);
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * Determines if any piece of a team attacks a square
+     *
+     * @param bits   the pieces on the board
+     * @param square the square to test
+     * @param byTeam {@link Bitboard#WHITE} or {@link Bitboard#BLACK}
+     * @return True if a piece of that team could capture on the square
+     */
+    public static boolean isSquareAttacked(Bitboard bits, int square, int byTeam) {
+        return attackers(bits, square, byTeam, bits.occupied()) != 0;
+    }
+
+    /**
+     * Finds every piece of a team that attacks a square
+     *
+     * @param occupied the occupancy to trace sliders through, which may leave out
+     *                 pieces that are about to move
+     * @return the squares of the attacking pieces
+     */
+    public static long attackers(Bitboard bits, int square, int byTeam, long occupied) {
+        // a pawn of the other team on this square captures onto the squares that attack it
+        long attackers = PAWN[1 - byTeam][square] & bits.pieces(byTeam, ChessPiece.PieceType.PAWN);
+        attackers |= KNIGHT[square] & bits.pieces(byTeam, ChessPiece.PieceType.KNIGHT);
+        attackers |= KING[square] & bits.pieces(byTeam, ChessPiece.PieceType.KING);
+        long queens = bits.pieces(byTeam, ChessPiece.PieceType.QUEEN);
+        long straight = bits.pieces(byTeam, ChessPiece.PieceType.ROOK) | queens;
+        if (straight != 0) {
+            attackers |= rook(square, occupied) & straight;
+        }
+        long diagonal = bits.pieces(byTeam, ChessPiece.PieceType.BISHOP) | queens;
+        if (diagonal != 0) {
+            attackers |= bishop(square, occupied) & diagonal;
+        }
+        return attackers;
+    }
+}
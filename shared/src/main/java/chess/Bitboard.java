@@ -0,0 +1,299 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A bitboard view of the pieces on a chessboard.
+ * <p>
+ * Each of the twelve piece kinds (six types for each team) gets one 64 bit mask,
+ * and the occupancy of each team and of the whole board is kept alongside them.
+ * Square 0 is row 1, column 1 and square 63 is row 8, column 8, which matches the
+ * order squares are stored in {@link ChessBoard#getBoard()}. A small mailbox array
+ * makes looking up the piece on a single square constant time.
+ * <p>
+ * The {@link Zobrist} key of the piece placement is updated as pieces are put and
+ * removed, so it always matches the pieces on the board, and so is a second key
+ * of the pawns alone. The sums of the material and piece-square terms of the
+ * {@link Evaluation}, and the game phase, are kept the same way.
+ */
+public class Bitboard {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    public static final int EMPTY = -1;
+
+    private static final int PIECE_TYPES = ChessPiece.PieceType.values().length;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int PAWN_TYPE = ChessPiece.PieceType.PAWN.ordinal();
+
+    private final long[] pieces = new long[2 * PIECE_TYPES];
+    private final long[] teams = new long[2];
+    private long occupied;
+    private final byte[] mailbox = new byte[64];
+    private long key;
+    private long pawnKey;
+    private int middlegame;
+    private int endgame;
+    private int phase;
+
+    public Bitboard() {
+        clear();
+    }
+
+    /**
+     * @return the square index for a row and column, both starting at 1
+     */
+    public static int square(int row, int column) {
+        return (row - 1) * 8 + (column - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static boolean onBoard(int row, int column) {
+        return row >= 1 && row <= 8 && column >= 1 && column <= 8;
+    }
+
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return the index of the piece mask for a team and piece type
+     */
+    public static int piece(int team, ChessPiece.PieceType type) {
+        return team * PIECE_TYPES + type.ordinal();
+    }
+
+    public static int piece(ChessPiece piece) {
+        return piece(team(piece.getTeamColor()), piece.getPieceType());
+    }
+
+    public static int team(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE : BLACK;
+    }
+
+    public static ChessGame.TeamColor teamColor(int team) {
+        return team == WHITE ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    public static int teamOf(int piece) {
+        return piece / PIECE_TYPES;
+    }
+
+    public static ChessPiece.PieceType typeOf(int piece) {
+        return TYPES[piece % PIECE_TYPES];
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there
+     */
+    public void put(int square, int piece) {
+        remove(square);
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        teams[teamOf(piece)] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) piece;
+        key ^= Zobrist.piece(piece, square);
+        if (piece % PIECE_TYPES == PAWN_TYPE) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        middlegame += Evaluation.middlegame(piece, square);
+        endgame += Evaluation.endgame(piece, square);
+        phase += Evaluation.phase(piece);
+    }
+
+    /**
+     * Empties a square
+     */
+    public void remove(int square) {
+        int piece = mailbox[square];
+        if (piece == EMPTY) {
+            return;
+        }
+        long bit = ~(1L << square);
+        pieces[piece] &= bit;
+        teams[teamOf(piece)] &= bit;
+        occupied &= bit;
+        mailbox[square] = EMPTY;
+        key ^= Zobrist.piece(piece, square);
+        if (piece % PIECE_TYPES == PAWN_TYPE) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        middlegame -= Evaluation.middlegame(piece, square);
+        endgame -= Evaluation.endgame(piece, square);
+        phase -= Evaluation.phase(piece);
+    }
+
+    /**
+     * Plays a packed {@link Move}, moving the rook as well when castling and
+     * removing the passed pawn when capturing en passant
+     *
+     * @param move a move generated for this position
+     * @return the piece index that was captured, or {@link #EMPTY}
+     */
+    public int make(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int piece = mailbox[from];
+        int captured;
+        if (flag == Move.EN_PASSANT) {
+            int passed = enPassantCapture(from, to);
+            captured = mailbox[passed];
+            remove(passed);
+        } else {
+            captured = mailbox[to];
+        }
+        remove(from);
+        ChessPiece.PieceType promotion = Move.promotionType(move);
+        put(to, promotion == null ? piece : piece(teamOf(piece), promotion));
+        if (flag == Move.CASTLE) {
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            put(rookTo, mailbox[rookFrom]);
+            remove(rookFrom);
+        }
+        return captured;
+    }
+
+    /**
+     * Takes back a move played with {@link #make}
+     *
+     * @param move     the move that was played
+     * @param captured the piece {@link #make} returned
+     */
+    public void unmake(int move, int captured) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int piece = mailbox[to];
+        if (Move.isPromotion(move)) {
+            piece = piece(teamOf(piece), ChessPiece.PieceType.PAWN);
+        }
+        remove(to);
+        put(from, piece);
+        if (flag == Move.EN_PASSANT) {
+            put(enPassantCapture(from, to), captured);
+        } else if (captured != EMPTY) {
+            put(to, captured);
+        }
+        if (flag == Move.CASTLE) {
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            put(rookFrom, mailbox[rookTo]);
+            remove(rookTo);
+        }
+    }
+
+    /**
+     * @return the square of the pawn taken en passant: beside the start square, in
+     * the end square's column
+     */
+    private static int enPassantCapture(int from, int to) {
+        return (from & ~7) | (to & 7);
+    }
+
+    /**
+     * @return the piece index on the square, or {@link #EMPTY}
+     */
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long pieces(int team, ChessPiece.PieceType type) {
+        return pieces[piece(team, type)];
+    }
+
+    public long team(int team) {
+        return teams[team];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the square of the team's king, or -1 if it has no king
+     */
+    public int kingSquare(int team) {
+        long king = pieces[piece(team, ChessPiece.PieceType.KING)];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * @return the Zobrist key of the pieces alone, without side to move, castling
+     * rights or en passant
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * @return the Zobrist key of the pawns alone, which is 0 when there are none
+     */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return the middlegame material and piece-square score, positive when white
+     * is ahead
+     */
+    public int middlegame() {
+        return middlegame;
+    }
+
+    /**
+     * @return the endgame material and piece-square score, positive when white is
+     * ahead
+     */
+    public int endgame() {
+        return endgame;
+    }
+
+    /**
+     * @return how much non-pawn material is left, from 0 in a pawn ending up to
+     * {@link Evaluation#MAX_PHASE} or more with all of it on the board
+     */
+    public int phase() {
+        return phase;
+    }
+
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        teams[WHITE] = 0L;
+        teams[BLACK] = 0L;
+        occupied = 0L;
+        key = 0L;
+        pawnKey = 0L;
+        middlegame = 0;
+        endgame = 0;
+        phase = 0;
+        Arrays.fill(mailbox, (byte) EMPTY);
+    }
+
+    public Bitboard copy() {
+        Bitboard copy = new Bitboard();
+        System.arraycopy(pieces, 0, copy.pieces, 0, pieces.length);
+        System.arraycopy(teams, 0, copy.teams, 0, teams.length);
+        System.arraycopy(mailbox, 0, copy.mailbox, 0, mailbox.length);
+        copy.occupied = occupied;
+        copy.key = key;
+        copy.pawnKey = pawnKey;
+        copy.middlegame = middlegame;
+        copy.endgame = endgame;
+        copy.phase = phase;
+        return copy;
+    }
+}
@@ -7,13 +7,25 @@ import java.util.Objects;
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * Squares are kept in row-major order so any square is found by index, and a
+ * {@link Bitboard} mirror of the pieces is kept in step for move generation.
+ * Pieces should be placed and removed through {@link #addPiece} so the mirror
+ * stays current.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
 public class ChessBoard {
 
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
     private List<ChessPosition> board;
     private ChessMove lastMove = null;
+    private transient Bitboard bitboard;
+    private transient List<ChessPosition> bitboardSource;
 
     public ChessBoard() {
         setBoard(new ArrayList<>());
@@ -26,10 +38,16 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        for (ChessPosition boardPosition : board) {
-            if (boardPosition.equals(position)) {
-                boardPosition.setOccupied(piece);
-            }
+        if (!Bitboard.onBoard(position.getRow(), position.getColumn())) {
+            return;
+        }
+        int square = Bitboard.square(position);
+        Bitboard bits = getBitboard();
+        board.get(square).setOccupied(piece);
+        if (piece == null) {
+            bits.remove(square);
+        } else {
+            bits.put(square, Bitboard.piece(piece));
         }
     }
 
@@ -41,12 +59,8 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        for (ChessPosition boardPosition : board) {
-            if (boardPosition.equals(position)) {
-                return boardPosition.getOccupied();
-            }
-        }
-        return null;
+        ChessPosition boardPosition = getPosition(position);
+        return boardPosition == null ? null : boardPosition.getOccupied();
     }
 
     /**
@@ -84,12 +98,10 @@ public class ChessBoard {
     }
 
     public ChessPosition getPosition(ChessPosition position) {
-        for (ChessPosition boardPosition : board) {
-            if (boardPosition.equals(position)) {
-                return boardPosition;
-            }
+        if (!Bitboard.onBoard(position.getRow(), position.getColumn())) {
+            return null;
         }
-        return null;
+        return board.get(Bitboard.square(position));
     }
 
     public ChessPosition getGridPosition(int row, int col) {
@@ -121,6 +133,83 @@ public class ChessBoard {
         this.lastMove = lastMove;
     }
 
+    /**
+     * Reads the castling rights still held from the moved flags of the kings and
+     * rooks on their starting squares
+     *
+     * @return a mask of {@link #WHITE_KINGSIDE}, {@link #WHITE_QUEENSIDE},
+     * {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}
+     */
+    public int castlingRights() {
+        int rights = 0;
+        if (unmoved(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)) {
+            if (unmoved(1, 8, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK)) {
+                rights |= WHITE_KINGSIDE;
+            }
+            if (unmoved(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK)) {
+                rights |= WHITE_QUEENSIDE;
+            }
+        }
+        if (unmoved(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING)) {
+            if (unmoved(8, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK)) {
+                rights |= BLACK_KINGSIDE;
+            }
+            if (unmoved(8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK)) {
+                rights |= BLACK_QUEENSIDE;
+            }
+        }
+        return rights;
+    }
+
+    private boolean unmoved(int row, int column, ChessGame.TeamColor team, ChessPiece.PieceType type) {
+        ChessPiece piece = getGridPosition(row, column).getOccupied();
+        return piece != null && !piece.isMoved() && piece.getTeamColor() == team && piece.getPieceType() == type;
+    }
+
+    /**
+     * @return the square a pawn skipped over if the last move was a pawn's double
+     * step, otherwise null
+     */
+    public ChessPosition enPassantSquare() {
+        if (lastMove == null) {
+            return null;
+        }
+        ChessPosition start = lastMove.getStartPosition();
+        ChessPosition end = lastMove.getEndPosition();
+        ChessPiece pawn = getPiece(end);
+        if (pawn == null || pawn.getPieceType() != ChessPiece.PieceType.PAWN
+                || Math.abs(end.getRow() - start.getRow()) != 2) {
+            return null;
+        }
+        return getGridPosition((start.getRow() + end.getRow()) / 2, end.getColumn());
+    }
+
+    /**
+     * @return the {@link Bitboard} square index of {@link #enPassantSquare}, or -1
+     */
+    int enPassantIndex() {
+        ChessPosition square = enPassantSquare();
+        return square == null ? -1 : Bitboard.square(square);
+    }
+
+    /**
+     * Builds a board from the piece placement field of a FEN string, such as
+     * {@code "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"}. Kings and rooks are
+     * marked as moved; use {@link ChessGame#fromFen} to keep castling rights.
+     *
+     * @throws IllegalArgumentException if the placement is not valid
+     */
+    public static ChessBoard fromFen(String placement) {
+        return Fen.parseBoard(placement);
+    }
+
+    /**
+     * @return the piece placement field of this board in FEN
+     */
+    public String toFen() {
+        return Fen.formatBoard(this);
+    }
+
     public ChessBoard copy() {
         ChessBoard clone = new ChessBoard();
         List<ChessPosition> copies = new ArrayList<>();
@@ -130,9 +219,35 @@ public class ChessBoard {
         }
         clone.setBoard(copies);
         clone.setLastMove(lastMove);
+        clone.bitboard = getBitboard().copy();
+        clone.bitboardSource = copies;
         return clone;
     }
 
+    /**
+     * Gets the bitboard mirror of this board, rebuilding it first if the square
+     * list was replaced (by {@link #setBoard} or by deserialization)
+     *
+     * @return the bitboard for the current pieces
+     */
+    Bitboard getBitboard() {
+        if (bitboardSource != board) {
+            if (bitboard == null) {
+                bitboard = new Bitboard();
+            } else {
+                bitboard.clear();
+            }
+            for (int square = 0; square < board.size(); square++) {
+                ChessPiece piece = board.get(square).getOccupied();
+                if (piece != null) {
+                    bitboard.put(square, Bitboard.piece(piece));
+                }
+            }
+            bitboardSource = board;
+        }
+        return bitboard;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -154,10 +269,6 @@ public class ChessBoard {
 
     @Override
     public int hashCode() {
-        return board.stream()
-                .map(ChessPosition::getOccupied)
-                .filter(Objects::nonNull)
-                .mapToInt(Objects::hashCode)
-                .reduce(0, Integer::sum);
+        return Long.hashCode(getBitboard().key());
     }
 }
\ No newline at end of file
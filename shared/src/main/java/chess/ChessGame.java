@@ -1,8 +1,8 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -13,9 +13,20 @@ import java.util.Objects;
  */
 public class ChessGame {
 
+    static final int FIFTY_MOVES = 100;
+
     private ChessBoard board;
     private ChessGame.TeamColor teamTurn;
     private boolean gameOver = false;
+    // moves by either team since the last capture or pawn move
+    private int halfmoveClock;
+    // starts at 1 and goes up after each move by black
+    private int fullmoveNumber = 1;
+    // the key of the position before each move, oldest first
+    private transient long[] keyHistory;
+    private transient int historyLength;
+    private transient GameStatus status;
+    private transient long statusKey;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -56,55 +67,17 @@ public class ChessGame {
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPosition actualStartPosition = board.getPosition(startPosition);
-        ChessPiece piece = actualStartPosition.getOccupied();
         Collection<ChessMove> legalMoves = new ArrayList<>();
-        if (piece == null) {
+        if (actualStartPosition.getOccupied() == null) {
             return legalMoves;
         }
-        TeamColor team = piece.getTeamColor();
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(board, actualStartPosition);
-        checkPossibleMoves(possibleMoves, team, legalMoves);
-        return legalMoves;
-    }
-
-    private void checkPossibleMoves(Collection<ChessMove> possibleMoves, TeamColor team, Collection<ChessMove> legalMoves) {
-        for (ChessMove move : possibleMoves) {
-            ChessGame gameCopy = this.copy();
-            ChessPiece piece = board.getPiece(move.getStartPosition());
-            if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                int colDiff = move.getEndPosition().getColumn() - move.getStartPosition().getColumn();
-                if (Math.abs(colDiff) == 2) {
-                    ChessGame castleCheckGame = castlingInCheckHandler(team, move, colDiff);
-                    if (castleCheckGame == null) {
-                        continue;
-                    }
-                    if (castleCheckGame.isInCheck(team)) {
-                        continue;
-                    }
-                }
-            }
-            gameCopy.executeMove(gameCopy.getBoard(), move);
-            if (!gameCopy.isInCheck(team)) {
-                if (!legalMoves.contains(move)) {
-                    legalMoves.add(move);
-                }
-            }
-        }
-    }
-
-    private ChessGame castlingInCheckHandler(TeamColor team, ChessMove move, int colDiff) {
-        if (isInCheck(team)) {
-            return null;
+        MoveList moves = new MoveList();
+        MoveGenerator.generatePieceLegal(board.getBitboard(), Bitboard.square(actualStartPosition),
+                board.castlingRights(), board.enPassantIndex(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            legalMoves.add(Move.toChessMove(moves.get(i)));
         }
-        int row = move.getStartPosition().getRow();
-        int startCol = move.getStartPosition().getColumn();
-        int direction = (colDiff > 0) ? 1 : -1;
-        ChessGame intermediateGame = this.copy();
-        ChessMove intermediateMove = new ChessMove(move.getStartPosition(),
-                intermediateGame.getBoard().getGridPosition(row, startCol + direction),
-                null);
-        intermediateGame.executeMove(intermediateGame.getBoard(), intermediateMove);
-        return intermediateGame;
+        return legalMoves;
     }
 
     /**
@@ -123,64 +96,122 @@ public class ChessGame {
         }
         Collection<ChessMove> validMoves = validMoves(startPosition);
         if (validMoves.contains(move)) {
-            executeMove(board, move);
-            board.setLastMove(move);
-            teamTurn = (getTeamTurn() == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+            makeMove(move, new MoveUndo());
+            if (halfmoveClock == 0) {
+                // no earlier position can come up again, and this move is never taken back
+                historyLength = 0;
+            }
         } else {
             throw new InvalidMoveException();
         }
     }
 
+    /**
+     * Makes a move in place without checking that it is legal, recording what is
+     * needed to take it back with {@link #unmakeMove}. The move should come from
+     * {@link #validMoves} for the team whose turn it is.
+     *
+     * @param move chess move to perform
+     * @param undo record to fill in; its previous contents are overwritten
+     */
+    public void makeMove(ChessMove move, MoveUndo undo) {
+        undo.teamTurn = teamTurn;
+        undo.lastMove = board.getLastMove();
+        undo.halfmoveClock = halfmoveClock;
+        undo.fullmoveNumber = fullmoveNumber;
+        undo.historyLength = historyLength;
+        recordKey(getZobristKey());
+        applyMove(board, move, undo);
+        boolean irreversible = undo.captured != null || undo.piece.getPieceType() == ChessPiece.PieceType.PAWN;
+        halfmoveClock = irreversible ? 0 : halfmoveClock + 1;
+        if (teamTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        board.setLastMove(move);
+        teamTurn = getOtherTeam(teamTurn);
+    }
+
+    /**
+     * Takes back the move recorded in the undo record, restoring captured pieces,
+     * moved flags, the last move and whose turn it is
+     *
+     * @param undo record filled in by {@link #makeMove(ChessMove, MoveUndo)}
+     */
+    public void unmakeMove(MoveUndo undo) {
+        revertMove(board, undo);
+        board.setLastMove(undo.lastMove);
+        teamTurn = undo.teamTurn;
+        halfmoveClock = undo.halfmoveClock;
+        fullmoveNumber = undo.fullmoveNumber;
+        historyLength = undo.historyLength;
+    }
+
+    private void recordKey(long key) {
+        if (keyHistory == null) {
+            keyHistory = new long[16];
+        } else if (historyLength == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, Math.max(16, historyLength * 2));
+        }
+        keyHistory[historyLength++] = key;
+    }
+
     public void executeMove(ChessBoard board, ChessMove move) {
+        applyMove(board, move, new MoveUndo());
+    }
+
+    private static void applyMove(ChessBoard board, ChessMove move, MoveUndo undo) {
         ChessPosition startPosition = board.getPosition(move.getStartPosition());
         ChessPosition endPosition = board.getPosition(move.getEndPosition());
         ChessPiece piece = startPosition.getOccupied();
-        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-            castle(board, move);
+        undo.start = startPosition;
+        undo.end = endPosition;
+        undo.piece = piece;
+        undo.pieceMoved = piece.isMoved();
+        undo.captured = endPosition.getOccupied();
+        undo.capturedPosition = endPosition;
+        undo.rook = null;
+
+        int colDiff = endPosition.getColumn() - startPosition.getColumn();
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs(colDiff) == 2) {
+            castle(board, undo, colDiff);
         }
-        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            enPassantHandler(board, move, endPosition, startPosition);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN && Math.abs(colDiff) == 1 && undo.captured == null) {
+            // en passant: the captured pawn is beside the start square, not on the end square
+            undo.capturedPosition = board.getGridPosition(startPosition.getRow(), endPosition.getColumn());
+            undo.captured = undo.capturedPosition.getOccupied();
+            board.addPiece(undo.capturedPosition, null);
         }
         if (move.getPromotionPiece() == null) {
-            board.addPiece(endPosition,piece);
+            board.addPiece(endPosition, piece);
         } else {
             board.addPiece(endPosition, new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
         }
-        if (!piece.isMoved()) {
-            piece.setMoved(true);
-        }
-        startPosition.setOccupied(null);
+        piece.setMoved(true);
+        board.addPiece(startPosition, null);
     }
 
-    private static void enPassantHandler(ChessBoard board, ChessMove move, ChessPosition endPosition, ChessPosition startPosition) {
-        int colDiff = Math.abs(move.getEndPosition().getColumn() - move.getStartPosition().getColumn());
-
-        if (colDiff == 1 && endPosition.getOccupied() == null) {
-            int capturedPawnRow = startPosition.getRow();
-            int capturedPawnCol = endPosition.getColumn();
-            ChessPosition capturedPawnPosition = board.getGridPosition(capturedPawnRow, capturedPawnCol);
-            capturedPawnPosition.setOccupied(null);
-        }
+    private static void castle(ChessBoard board, MoveUndo undo, int colDiff) {
+        int row = undo.start.getRow();
+        undo.rookStart = board.getGridPosition(row, colDiff > 0 ? 8 : 1);
+        undo.rookEnd = board.getGridPosition(row, colDiff > 0 ? 6 : 4);
+        undo.rook = undo.rookStart.getOccupied();
+        undo.rookMoved = undo.rook.isMoved();
+        board.addPiece(undo.rookEnd, undo.rook);
+        undo.rook.setMoved(true);
+        board.addPiece(undo.rookStart, null);
     }
 
-    private void castle(ChessBoard board, ChessMove move) {
-        int colDiff = move.getEndPosition().getColumn() - move.getStartPosition().getColumn();
-        if (colDiff == 2) {
-            int row = move.getStartPosition().getRow();
-            ChessPosition rookStart = board.getGridPosition(row, 8);
-            ChessPosition rookEnd = board.getGridPosition(row, 6);
-            ChessPiece rook = rookStart.getOccupied();
-            board.addPiece(rookEnd, rook);
-            rookEnd.getOccupied().setMoved(true);
-            rookStart.setOccupied(null);
-        } else if (colDiff == -2) {
-            int row = move.getStartPosition().getRow();
-            ChessPosition rookStart = board.getGridPosition(row, 1);
-            ChessPosition rookEnd = board.getGridPosition(row, 4);
-            ChessPiece rook = rookStart.getOccupied();
-            board.addPiece(rookEnd, rook);
-            rookEnd.getOccupied().setMoved(true);
-            rookStart.setOccupied(null);
+    private static void revertMove(ChessBoard board, MoveUndo undo) {
+        board.addPiece(undo.end, null);
+        if (undo.captured != null) {
+            board.addPiece(undo.capturedPosition, undo.captured);
+        }
+        board.addPiece(undo.start, undo.piece);
+        undo.piece.setMoved(undo.pieceMoved);
+        if (undo.rook != null) {
+            board.addPiece(undo.rookEnd, null);
+            board.addPiece(undo.rookStart, undo.rook);
+            undo.rook.setMoved(undo.rookMoved);
         }
     }
 
@@ -191,19 +222,142 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findKing(teamColor);
-        TeamColor otherTeam = getOtherTeam(teamColor);
-        Collection<ChessPosition> otherTeamPositions = findTeamPositions(otherTeam);
-        for (ChessPosition position : otherTeamPositions) {
-            ChessPiece piece = position.getOccupied();
-            Collection<ChessMove> moves = piece.pieceMoves(board, position);
-            for (ChessMove move : moves) {
-                if (move.getEndPosition().equals(kingPosition)) {
-                    return true;
-                }
+        Bitboard bits = board.getBitboard();
+        int kingSquare = bits.kingSquare(Bitboard.team(teamColor));
+        return kingSquare >= 0
+                && Attacks.isSquareAttacked(bits, kingSquare, Bitboard.team(getOtherTeam(teamColor)));
+    }
+
+    /**
+     * Determines if any piece of the given team could capture on a square
+     *
+     * @param position the square to test
+     * @param byTeam   the attacking team
+     * @return True if the square is attacked by that team
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor byTeam) {
+        return Attacks.isSquareAttacked(board.getBitboard(), Bitboard.square(position), Bitboard.team(byTeam));
+    }
+
+    /**
+     * Gets whether the team to move is in check, checkmate or stalemate, or the
+     * game is drawn by repetition or by the fifty-move rule. A checkmate or
+     * stalemate on the move that would also draw the game stands.
+     * <p>
+     * Whether the team to move has any moves is worked out once per position and
+     * kept until the position changes, so asking again after the same move costs
+     * only a key comparison and the short scan for a repetition.
+     *
+     * @return the status of the team whose turn it is
+     */
+    public GameStatus getStatus() {
+        long key = getZobristKey();
+        GameStatus moveStatus = getMoveStatus(key);
+        if (moveStatus.isOver()) {
+            return moveStatus;
+        }
+        if (countRepetitions(key) >= 2) {
+            return GameStatus.DRAW_BY_REPETITION;
+        }
+        if (halfmoveClock >= FIFTY_MOVES) {
+            return GameStatus.DRAW_BY_FIFTY_MOVES;
+        }
+        return moveStatus;
+    }
+
+    private GameStatus getMoveStatus(long key) {
+        if (status == null || statusKey != key) {
+            boolean inCheck = isInCheck(teamTurn);
+            boolean noMoves = checkTeamMoves(teamTurn);
+            if (inCheck) {
+                status = noMoves ? GameStatus.CHECKMATE : GameStatus.CHECK;
+            } else {
+                status = noMoves ? GameStatus.STALEMATE : GameStatus.IN_PROGRESS;
             }
+            statusKey = key;
         }
-        return false;
+        return status;
+    }
+
+    /**
+     * Counts the earlier times the position came up with the same team to move.
+     * Only positions since the last capture or pawn move can match, so the scan
+     * stops there.
+     */
+    private int countRepetitions(long key) {
+        int count = 0;
+        int oldest = Math.max(0, historyLength - halfmoveClock);
+        for (int i = historyLength - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of moves by either team since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the number of moves since the last capture or pawn move, as when
+     * loading a position part way through a game
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return the keys of the positions since the last capture or pawn move, the
+     * only ones the current position could repeat, oldest first
+     */
+    long[] getRecentKeys() {
+        int count = Math.min(historyLength, halfmoveClock);
+        return count == 0 ? new long[0] : Arrays.copyOfRange(keyHistory, historyLength - count, historyLength);
+    }
+
+    /**
+     * Replaces the position history, as when loading a saved game
+     */
+    void setRecentKeys(long[] keys) {
+        keyHistory = keys.clone();
+        historyLength = keys.length;
+    }
+
+    /**
+     * @return the number of the move being played, starting at 1 and going up
+     * after each move by black
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Builds a game from a position in Forsyth-Edwards Notation
+     *
+     * @param fen the position, with or without the two clock fields
+     * @return a new game at that position
+     * @throws IllegalArgumentException if the string is not a valid position
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * Writes the position in Forsyth-Edwards Notation: castling rights come from
+     * the moved flags of kings and rooks, the en passant square from the last move
+     *
+     * @return the position as a FEN string with all six fields
+     */
+    public String toFen() {
+        return Fen.format(this);
     }
 
     /**
@@ -213,6 +367,9 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
+        if (teamColor == teamTurn) {
+            return getStatus() == GameStatus.CHECKMATE;
+        }
         if (isInCheck(teamColor)) {
             return checkTeamMoves(teamColor);
         }
@@ -227,6 +384,9 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
+        if (teamColor == teamTurn) {
+            return getStatus() == GameStatus.STALEMATE;
+        }
         if (!isInCheck(teamColor)) {
             return checkTeamMoves(teamColor);
         }
@@ -234,50 +394,42 @@ public class ChessGame {
     }
 
     private boolean checkTeamMoves(TeamColor teamColor) {
-        Collection<ChessPosition> teamPositions = findTeamPositions(teamColor);
-        for (ChessPosition position : teamPositions) {
-            Collection<ChessMove> moves = validMoves(position);
-            if (!moves.isEmpty()) {
-                return false;
-            }
-        }
-        return true;
+        return !MoveGenerator.hasLegalMove(board.getBitboard(), Bitboard.team(teamColor),
+                board.castlingRights(), board.enPassantIndex(), new MoveList());
     }
 
-    private Collection<ChessPosition> findTeamPositions(TeamColor teamColor) {
-        Collection<ChessPosition> teamPositions = new ArrayList<>();
-        List<ChessPosition> boardPositions = board.getBoard();
-        for (int i = 0; i < 64; i++) {
-            ChessPosition currentSquare = boardPositions.get(i);
-            if (currentSquare.getOccupied() != null && currentSquare.getOccupied().getTeamColor() == teamColor) {
-                teamPositions.add(currentSquare);
-            }
-        }
-        return teamPositions;
-    }
-
-    private ChessPosition findKing(TeamColor teamColor) {
-        Collection<ChessPosition> teamPositions = findTeamPositions(teamColor);
-        if (!teamPositions.isEmpty()) {
-            for (ChessPosition position : teamPositions) {
-                if (position.getOccupied().getPieceType().equals(ChessPiece.PieceType.KING)) {
-                    return position;
-                }
-            }
-        }
-        return null;
+    /**
+     * Gets the Zobrist key of the current position: the pieces on their squares,
+     * whose turn it is, the castling rights still held, and the en passant file
+     * when the team to move has a pawn that could capture there. The piece part is
+     * kept up to date as moves are made, so this costs a handful of lookups.
+     *
+     * @return a 64 bit key that is equal for equal positions
+     */
+    public long getZobristKey() {
+        return Zobrist.key(board.getBitboard(), Bitboard.team(teamTurn), board.castlingRights(),
+                board.enPassantIndex());
     }
 
     public TeamColor getOtherTeam(TeamColor teamColor) {
         return (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
+    /**
+     * A game is over once it is marked so (by resignation), the team to move is
+     * checkmated or stalemated, or it is drawn by repetition or the fifty-move
+     * rule; the team that just moved cannot be checkmated or stalemated
+     */
     public boolean isGameOver() {
-        return gameOver ||
-                isInCheckmate(TeamColor.WHITE) ||
-                isInCheckmate(TeamColor.BLACK) ||
-                isInStalemate(TeamColor.WHITE) ||
-                isInStalemate(TeamColor.BLACK);
+        return gameOver || getStatus().isOver();
+    }
+
+    /**
+     * @return True if the game was marked over with {@link #setGameOver}, without
+     * looking at the position
+     */
+    boolean isMarkedGameOver() {
+        return gameOver;
     }
 
     public void setGameOver(boolean gameOver) {
@@ -291,6 +443,9 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        historyLength = 0;
     }
 
     /**
@@ -302,11 +457,25 @@ public class ChessGame {
         return this.board;
     }
 
+    /**
+     * Takes an immutable snapshot of the current position, which can be shared
+     * with other threads while this game carries on
+     *
+     * @return the position as it stands now
+     */
+    public Position snapshot() {
+        return Position.of(this);
+    }
+
     public ChessGame copy() {
         ChessGame copy = new ChessGame();
         copy.setBoard(board.copy());
         copy.setTeamTurn(getTeamTurn());
         copy.setGameOver(this.gameOver);
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        copy.historyLength = historyLength;
+        copy.keyHistory = keyHistory == null ? null : Arrays.copyOf(keyHistory, historyLength);
         return copy;
     }
 
@@ -321,6 +490,8 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, teamTurn);
+        // only the pieces and the turn, to agree with equals
+        long key = board.getBitboard().key();
+        return Long.hashCode(teamTurn == TeamColor.BLACK ? key ^ Zobrist.side() : key);
     }
 }
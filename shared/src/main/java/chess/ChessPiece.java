@@ -55,14 +55,7 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return switch (piece) {
-            case KING -> new MoveCalculator(board,myPosition,this).getKingMoves();
-            case QUEEN -> new MoveCalculator(board,myPosition,this).getQueenMoves();
-            case BISHOP-> new MoveCalculator(board,myPosition,this).getBishopMoves();
-            case KNIGHT -> new MoveCalculator(board,myPosition,this).getKnightMoves();
-            case ROOK -> new MoveCalculator(board,myPosition,this).getRookMoves();
-            case PAWN -> new MoveCalculator(board,myPosition,this).getPawnMoves();
-        };
+        return new MoveCalculator(board, myPosition, this).getMoves();
     }
 
     public void setPiece(PieceType piece) {
@@ -0,0 +1,303 @@
+package chess;
+
+/**
+ * Scores positions for {@link Search}, in centipawns from white's point of view.
+ * <p>
+ * Each piece is worth its material plus a bonus for the square it stands on, taken
+ * from a piece-square table. There are two sets of values, one for the middlegame
+ * and one for the endgame, and the score blends the two by how much material is
+ * left (a tapered evaluation), so for example the king is kept back early on and
+ * brought to the centre once the queens and rooks are gone. These terms only
+ * change when a piece is put or removed, so {@link Bitboard} keeps their sums up
+ * to date as moves are made and unmade, and reading them costs nothing.
+ * <p>
+ * The rest of the score is worked out from the masks when asked for: doubled,
+ * isolated and passed pawns, and the safety of each king, which counts the pawns
+ * sheltering it and the enemy pieces attacking the squares around it and matters
+ * less as material comes off. The pawn terms depend on nothing but the pawns, so
+ * a search looks them up in a {@link PawnHashTable} instead.
+ */
+public class Evaluation {
+
+    // indexed by PieceType ordinal: king, queen, bishop, knight, rook, pawn
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+    private static final int[] ENDGAME_VALUES = {0, 940, 340, 300, 530, 120};
+
+    /** How much each piece counts toward the middlegame; all of them together make 24 */
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+    static final int MAX_PHASE = 24;
+
+    private static final int DOUBLED_PAWN = -15;
+    private static final int ISOLATED_PAWN = -15;
+    // by how many rows the pawn has advanced
+    private static final int[] PASSED_PAWN = {0, 5, 10, 20, 35, 60, 100, 0};
+
+    private static final int SHIELD_NEAR = 12;
+    private static final int SHIELD_FAR = 6;
+    private static final int OPEN_FILE_NEAR_KING = -15;
+    // by PieceType ordinal, per square next to the king the piece attacks
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 5, 2, 2, 3, 0};
+    private static final int KING_ATTACK_PENALTY = -6;
+
+    // the tables are laid out as seen from white's side: the first row is row 8
+    private static final int[][] MIDDLEGAME_TABLES = {
+            { // king
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20},
+            { // queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20},
+            { // bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20},
+            { // knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50},
+            { // rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0},
+            { // pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+    };
+
+    // only the king and pawns play differently in the endgame
+    private static final int[] ENDGAME_KING = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+    private static final int[] ENDGAME_PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            15, 15, 15, 15, 15, 15, 15, 15,
+            5, 5, 5, 5, 5, 5, 5, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+
+    // material plus square bonus for every piece index and square, negative for black
+    private static final int[][] MIDDLEGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+    private static final int[] PHASE = new int[12];
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // the squares ahead of a pawn, on its own column and the two beside it
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    static {
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            int t = type.ordinal();
+            int[] middlegame = MIDDLEGAME_TABLES[t];
+            int[] endgame = type == ChessPiece.PieceType.KING ? ENDGAME_KING
+                    : type == ChessPiece.PieceType.PAWN ? ENDGAME_PAWN : middlegame;
+            for (int square = 0; square < 64; square++) {
+                int whiteIndex = (8 - Bitboard.row(square)) * 8 + Bitboard.column(square) - 1;
+                // black reads the table upside down
+                int blackIndex = square;
+                int white = Bitboard.piece(Bitboard.WHITE, type);
+                int black = Bitboard.piece(Bitboard.BLACK, type);
+                MIDDLEGAME[white][square] = PIECE_VALUES[t] + middlegame[whiteIndex];
+                ENDGAME[white][square] = ENDGAME_VALUES[t] + endgame[whiteIndex];
+                MIDDLEGAME[black][square] = -(PIECE_VALUES[t] + middlegame[blackIndex]);
+                ENDGAME[black][square] = -(ENDGAME_VALUES[t] + endgame[blackIndex]);
+            }
+            PHASE[Bitboard.piece(Bitboard.WHITE, type)] = PHASE_WEIGHTS[t];
+            PHASE[Bitboard.piece(Bitboard.BLACK, type)] = PHASE_WEIGHTS[t];
+        }
+        for (int column = 0; column < 8; column++) {
+            FILES[column] = 0x0101010101010101L << column;
+        }
+        for (int column = 0; column < 8; column++) {
+            ADJACENT_FILES[column] = (column > 0 ? FILES[column - 1] : 0) | (column < 7 ? FILES[column + 1] : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            long columns = FILES[square & 7] | ADJACENT_FILES[square & 7];
+            int row = square >>> 3;
+            long above = row == 7 ? 0 : -1L << ((row + 1) * 8);
+            long below = row == 0 ? 0 : -1L >>> ((8 - row) * 8);
+            PASSED_MASKS[Bitboard.WHITE][square] = columns & above;
+            PASSED_MASKS[Bitboard.BLACK][square] = columns & below;
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    public static int value(ChessPiece.PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+
+    /**
+     * @return the middlegame material and square bonus of a piece index on a
+     * square, negative for black
+     */
+    static int middlegame(int piece, int square) {
+        return MIDDLEGAME[piece][square];
+    }
+
+    static int endgame(int piece, int square) {
+        return ENDGAME[piece][square];
+    }
+
+    /**
+     * @return how much the piece counts toward the game still being a middlegame
+     */
+    static int phase(int piece) {
+        return PHASE[piece];
+    }
+
+    /**
+     * @return the score of a game's position, positive when white is ahead
+     */
+    public static int evaluate(ChessGame game) {
+        return evaluate(game.getBoard().getBitboard());
+    }
+
+    /**
+     * @return the score of the pieces, positive when white is ahead
+     */
+    public static int evaluate(Bitboard bits) {
+        int pawns = pawnStructure(bits.pieces(Bitboard.WHITE, ChessPiece.PieceType.PAWN),
+                bits.pieces(Bitboard.BLACK, ChessPiece.PieceType.PAWN));
+        return evaluate(bits, pawns);
+    }
+
+    /**
+     * Scores the pieces, looking the pawn structure up in a cache
+     *
+     * @return the score, positive when white is ahead
+     */
+    public static int evaluate(Bitboard bits, PawnHashTable pawnTable) {
+        return evaluate(bits, pawnTable.score(bits));
+    }
+
+    private static int evaluate(Bitboard bits, int pawnStructure) {
+        int phase = Math.min(bits.phase(), MAX_PHASE);
+        int score = (bits.middlegame() * phase + bits.endgame() * (MAX_PHASE - phase)) / MAX_PHASE;
+        score += pawnStructure;
+        score += (kingSafety(bits, Bitboard.WHITE) - kingSafety(bits, Bitboard.BLACK)) * phase / MAX_PHASE;
+        return score;
+    }
+
+    /**
+     * @return the doubled, isolated and passed pawn terms, positive when white's
+     * pawns are better
+     */
+    static int pawnStructure(long whitePawns, long blackPawns) {
+        return pawnScore(Bitboard.WHITE, whitePawns, blackPawns) - pawnScore(Bitboard.BLACK, blackPawns, whitePawns);
+    }
+
+    private static int pawnScore(int team, long pawns, long enemyPawns) {
+        int score = 0;
+        for (int column = 0; column < 8; column++) {
+            int count = Long.bitCount(pawns & FILES[column]);
+            if (count == 0) {
+                continue;
+            }
+            score += (count - 1) * DOUBLED_PAWN;
+            if ((pawns & ADJACENT_FILES[column]) == 0) {
+                score += count * ISOLATED_PAWN;
+            }
+        }
+        for (long remaining = pawns; remaining != 0; remaining &= remaining - 1) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            if ((PASSED_MASKS[team][square] & enemyPawns) == 0) {
+                int advanced = team == Bitboard.WHITE ? Bitboard.row(square) - 1 : 8 - Bitboard.row(square);
+                score += PASSED_PAWN[advanced];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return the shelter of the team's king less the pressure on the squares
+     * around it, as a middlegame score for that team
+     */
+    private static int kingSafety(Bitboard bits, int team) {
+        int king = bits.kingSquare(team);
+        if (king < 0) {
+            return 0;
+        }
+        long pawns = bits.pieces(team, ChessPiece.PieceType.PAWN);
+        int row = Bitboard.row(king);
+        int column = Bitboard.column(king);
+        int forward = team == Bitboard.WHITE ? 1 : -1;
+        int score = 0;
+        for (int c = Math.max(1, column - 1); c <= Math.min(8, column + 1); c++) {
+            if ((pawns & FILES[c - 1]) == 0) {
+                score += OPEN_FILE_NEAR_KING;
+            }
+            if (Bitboard.onBoard(row + forward, c) && (pawns & (1L << Bitboard.square(row + forward, c))) != 0) {
+                score += SHIELD_NEAR;
+            } else if (Bitboard.onBoard(row + 2 * forward, c)
+                    && (pawns & (1L << Bitboard.square(row + 2 * forward, c))) != 0) {
+                score += SHIELD_FAR;
+            }
+        }
+
+        long zone = Attacks.king(king);
+        long occupied = bits.occupied();
+        int enemy = 1 - team;
+        int pressure = 0;
+        for (long knights = bits.pieces(enemy, ChessPiece.PieceType.KNIGHT); knights != 0; knights &= knights - 1) {
+            pressure += Long.bitCount(Attacks.knight(Long.numberOfTrailingZeros(knights)) & zone)
+                    * KING_ATTACK_WEIGHTS[ChessPiece.PieceType.KNIGHT.ordinal()];
+        }
+        for (long bishops = bits.pieces(enemy, ChessPiece.PieceType.BISHOP); bishops != 0; bishops &= bishops - 1) {
+            pressure += Long.bitCount(Attacks.bishop(Long.numberOfTrailingZeros(bishops), occupied) & zone)
+                    * KING_ATTACK_WEIGHTS[ChessPiece.PieceType.BISHOP.ordinal()];
+        }
+        for (long rooks = bits.pieces(enemy, ChessPiece.PieceType.ROOK); rooks != 0; rooks &= rooks - 1) {
+            pressure += Long.bitCount(Attacks.rook(Long.numberOfTrailingZeros(rooks), occupied) & zone)
+                    * KING_ATTACK_WEIGHTS[ChessPiece.PieceType.ROOK.ordinal()];
+        }
+        for (long queens = bits.pieces(enemy, ChessPiece.PieceType.QUEEN); queens != 0; queens &= queens - 1) {
+            pressure += Long.bitCount(Attacks.queen(Long.numberOfTrailingZeros(queens), occupied) & zone)
+                    * KING_ATTACK_WEIGHTS[ChessPiece.PieceType.QUEEN.ordinal()];
+        }
+        return score + pressure * KING_ATTACK_PENALTY;
+    }
+}
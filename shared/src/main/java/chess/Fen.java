@@ -0,0 +1,278 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * This game keeps castling rights as the moved flags of kings and rooks, and the
+ * en passant square as the board's last move, so both are translated into that
+ * form: a king or rook that has lost its castling rights is marked as moved, and
+ * an en passant square becomes the pawn's double step as the last move. Writing
+ * goes the other way, so a game written out and read back plays the same.
+ */
+public class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * Builds a game from a FEN string
+     *
+     * @param fen the position to load
+     * @return a game with that position on its board
+     * @throws IllegalArgumentException if the string is not a valid position
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4 || fields.length > 6) {
+            throw new IllegalArgumentException("FEN needs 4 to 6 fields: " + fen);
+        }
+        ChessBoard board = new ChessBoard();
+        parsePlacement(board, fields[0]);
+
+        ChessGame.TeamColor turn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Bad side to move: " + fields[1]);
+        };
+        parseCastling(board, fields[2]);
+        parseEnPassant(board, fields[3], turn);
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        // the clocks are optional, as in EPD
+        if (fields.length > 4) {
+            game.setHalfmoveClock(parseCounter(fields[4], 0, "halfmove clock"));
+        }
+        if (fields.length > 5) {
+            game.setFullmoveNumber(parseCounter(fields[5], 1, "move number"));
+        }
+        return game;
+    }
+
+    /**
+     * Builds a board from the piece placement field of a FEN string. Every piece
+     * is marked as moved except pawns on their starting row, so the board grants
+     * no castling rights.
+     *
+     * @param placement the ranks from row 8 down to row 1, separated by slashes
+     * @return a board with those pieces
+     * @throws IllegalArgumentException if the placement is not valid
+     */
+    public static ChessBoard parseBoard(String placement) {
+        ChessBoard board = new ChessBoard();
+        parsePlacement(board, placement.trim());
+        return board;
+    }
+
+    private static int parseCounter(String field, int minimum, String name) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value >= minimum) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Bad " + name + ": " + field);
+    }
+
+    /**
+     * Writes a game's position as a FEN string
+     *
+     * @param game the game to write
+     * @return all six fields: placement, side to move, castling rights, en passant
+     * square, halfmove clock and move number
+     */
+    public static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder fen = new StringBuilder(90);
+        appendPlacement(fen, board);
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        appendCastling(fen, board.castlingRights());
+        fen.append(' ');
+        ChessPosition enPassant = board.enPassantSquare();
+        if (enPassant == null) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + enPassant.getColumn() - 1)).append(enPassant.getRow());
+        }
+        fen.append(' ').append(game.getHalfmoveClock());
+        fen.append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    /**
+     * @return the piece placement field for a board
+     */
+    public static String formatBoard(ChessBoard board) {
+        StringBuilder fen = new StringBuilder(72);
+        appendPlacement(fen, board);
+        return fen.toString();
+    }
+
+    private static void appendPlacement(StringBuilder fen, ChessBoard board) {
+        Bitboard bits = board.getBitboard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int column = 1; column <= 8; column++) {
+                int piece = bits.pieceAt(Bitboard.square(row, column));
+                if (piece == Bitboard.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = pieceLetter(Bitboard.typeOf(piece));
+                fen.append(Bitboard.teamOf(piece) == Bitboard.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+    }
+
+    private static char pieceLetter(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+    }
+
+    private static void appendCastling(StringBuilder fen, int rights) {
+        if (rights == 0) {
+            fen.append('-');
+            return;
+        }
+        if ((rights & ChessBoard.WHITE_KINGSIDE) != 0) {
+            fen.append('K');
+        }
+        if ((rights & ChessBoard.WHITE_QUEENSIDE) != 0) {
+            fen.append('Q');
+        }
+        if ((rights & ChessBoard.BLACK_KINGSIDE) != 0) {
+            fen.append('k');
+        }
+        if ((rights & ChessBoard.BLACK_QUEENSIDE) != 0) {
+            fen.append('q');
+        }
+    }
+
+    private static void parsePlacement(ChessBoard board, String placement) {
+        String[] ranks = placement.split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN placement needs 8 ranks: " + placement);
+        }
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int column = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    column += c - '0';
+                    continue;
+                }
+                if (column > 8) {
+                    throw new IllegalArgumentException("Too many squares on rank " + row);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE
+                        : ChessGame.TeamColor.BLACK;
+                ChessPiece piece = new ChessPiece(color, pieceType(c));
+                // only castling pieces and pawns care about having moved; castling is granted below
+                boolean onPawnStart = row == (color == ChessGame.TeamColor.WHITE ? 2 : 7);
+                piece.setMoved(piece.getPieceType() != ChessPiece.PieceType.PAWN || !onPawnStart);
+                board.addPiece(new ChessPosition(row, column), piece);
+                column++;
+            }
+            if (column != 9) {
+                throw new IllegalArgumentException("Rank " + row + " does not have 8 squares");
+            }
+        }
+    }
+
+    static ChessPiece.PieceType pieceType(char c) {
+        return switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece: " + c);
+        };
+    }
+
+    private static void parseCastling(ChessBoard board, String castling) {
+        if (castling.equals("-")) {
+            return;
+        }
+        for (char c : castling.toCharArray()) {
+            switch (c) {
+                case 'K' -> grantCastling(board, ChessGame.TeamColor.WHITE, 1, 8);
+                case 'Q' -> grantCastling(board, ChessGame.TeamColor.WHITE, 1, 1);
+                case 'k' -> grantCastling(board, ChessGame.TeamColor.BLACK, 8, 8);
+                case 'q' -> grantCastling(board, ChessGame.TeamColor.BLACK, 8, 1);
+                default -> throw new IllegalArgumentException("Bad castling rights: " + castling);
+            }
+        }
+    }
+
+    /**
+     * Marks the kings and rooks unmoved for each castling right in the mask
+     */
+    static void grantCastling(ChessBoard board, int rights) {
+        if ((rights & ChessBoard.WHITE_KINGSIDE) != 0) {
+            grantCastling(board, ChessGame.TeamColor.WHITE, 1, 8);
+        }
+        if ((rights & ChessBoard.WHITE_QUEENSIDE) != 0) {
+            grantCastling(board, ChessGame.TeamColor.WHITE, 1, 1);
+        }
+        if ((rights & ChessBoard.BLACK_KINGSIDE) != 0) {
+            grantCastling(board, ChessGame.TeamColor.BLACK, 8, 8);
+        }
+        if ((rights & ChessBoard.BLACK_QUEENSIDE) != 0) {
+            grantCastling(board, ChessGame.TeamColor.BLACK, 8, 1);
+        }
+    }
+
+    static void grantCastling(ChessBoard board, ChessGame.TeamColor color, int row, int rookColumn) {
+        ChessPiece king = board.getPiece(new ChessPosition(row, 5));
+        ChessPiece rook = board.getPiece(new ChessPosition(row, rookColumn));
+        if (isPiece(king, color, ChessPiece.PieceType.KING) && isPiece(rook, color, ChessPiece.PieceType.ROOK)) {
+            king.setMoved(false);
+            rook.setMoved(false);
+        }
+    }
+
+    private static boolean isPiece(ChessPiece piece, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return piece != null && piece.getTeamColor() == color && piece.getPieceType() == type;
+    }
+
+    private static void parseEnPassant(ChessBoard board, String square, ChessGame.TeamColor turn) {
+        if (square.equals("-")) {
+            return;
+        }
+        if (square.length() != 2) {
+            throw new IllegalArgumentException("Bad en passant square: " + square);
+        }
+        int column = square.charAt(0) - 'a' + 1;
+        int row = square.charAt(1) - '0';
+        // the pawn that just moved belongs to the other team and skipped over this square
+        int direction = (turn == ChessGame.TeamColor.WHITE) ? -1 : 1;
+        if (column < 1 || column > 8 || row != (turn == ChessGame.TeamColor.WHITE ? 6 : 3)) {
+            throw new IllegalArgumentException("Bad en passant square: " + square);
+        }
+        board.setLastMove(new ChessMove(new ChessPosition(row - direction, column),
+                new ChessPosition(row + direction, column), null));
+    }
+}
@@ -0,0 +1,217 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A compact binary form of a game, for storing it where a Gson dump of every
+ * square would be too large.
+ * <p>
+ * The layout, version 1:
+ * <ul>
+ *     <li>1 byte: the format version</li>
+ *     <li>1 byte: black to move in bit 0, marked over (by resignation) in bit 1, the
+ *     {@link ChessBoard#castlingRights()} mask in bits 4 to 7</li>
+ *     <li>2 bytes: the last move, as start square, end square and promotion, or
+ *     all ones for none</li>
+ *     <li>8 bytes: the occupied squares</li>
+ *     <li>half a byte per occupied square, lowest square first: the
+ *     {@link Bitboard} piece index</li>
+ *     <li>variable length integers: the halfmove clock, the move number and the
+ *     number of position keys that follow</li>
+ *     <li>8 bytes per key: the keys of the positions since the last capture or pawn
+ *     move, oldest first, so repetitions are still found after loading</li>
+ * </ul>
+ * A full board comes to 31 bytes, plus 8 for each move since the last capture or
+ * pawn move. Moved flags are not stored; as in {@link Fen}, a king or rook is
+ * unmoved if it can still castle, and a pawn if it is on its starting row.
+ */
+public final class GameStateCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 2;
+    private static final int CASTLING_SHIFT = 4;
+    private static final int NO_MOVE = 0xFFFF;
+    private static final int HEADER_BYTES = 12;
+
+    private GameStateCodec() {
+    }
+
+    /**
+     * @param game the game to write; it is not changed
+     * @return the game in the current format version
+     */
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        Bitboard bits = board.getBitboard();
+        long occupied = bits.occupied();
+        long[] keys = game.getRecentKeys();
+        int pieceBytes = (Long.bitCount(occupied) + 1) / 2;
+        byte[] data = new byte[HEADER_BYTES + pieceBytes + 3 * 5 + keys.length * Long.BYTES];
+
+        data[0] = VERSION;
+        int flags = board.castlingRights() << CASTLING_SHIFT;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isMarkedGameOver()) {
+            flags |= GAME_OVER;
+        }
+        data[1] = (byte) flags;
+        int lastMove = encodeMove(board.getLastMove());
+        data[2] = (byte) (lastMove >>> 8);
+        data[3] = (byte) lastMove;
+        writeLong(data, 4, occupied);
+
+        int offset = HEADER_BYTES;
+        int count = 0;
+        for (long remaining = occupied; remaining != 0; remaining &= remaining - 1) {
+            int piece = bits.pieceAt(Long.numberOfTrailingZeros(remaining));
+            if ((count & 1) == 0) {
+                data[offset] = (byte) piece;
+            } else {
+                data[offset++] |= (byte) (piece << 4);
+            }
+            count++;
+        }
+        offset = HEADER_BYTES + pieceBytes;
+        offset = writeVarInt(data, offset, game.getHalfmoveClock());
+        offset = writeVarInt(data, offset, game.getFullmoveNumber());
+        offset = writeVarInt(data, offset, keys.length);
+        for (long key : keys) {
+            writeLong(data, offset, key);
+            offset += Long.BYTES;
+        }
+        return Arrays.copyOf(data, offset);
+    }
+
+    /**
+     * @param data a game written by {@link #encode}, in this or an earlier version
+     * @return a new game in that state
+     * @throws IllegalArgumentException if the data is not a game in a known version
+     */
+    public static ChessGame decode(byte[] data) {
+        if (data == null || data.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Game state is too short");
+        }
+        if (data[0] != VERSION) {
+            throw new IllegalArgumentException("Unknown game state version: " + data[0]);
+        }
+        try {
+            return decodeVersion1(data);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Game state is truncated", e);
+        }
+    }
+
+    private static ChessGame decodeVersion1(byte[] data) {
+        int flags = data[1] & 0xFF;
+        long occupied = readLong(data, 4);
+
+        ChessBoard board = new ChessBoard();
+        int offset = HEADER_BYTES;
+        int count = 0;
+        for (long remaining = occupied; remaining != 0; remaining &= remaining - 1) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            int piece = (count & 1) == 0 ? data[offset] & 0xF : (data[offset++] >>> 4) & 0xF;
+            count++;
+            if (piece >= 12) {
+                throw new IllegalArgumentException("Bad piece in game state: " + piece);
+            }
+            int team = Bitboard.teamOf(piece);
+            ChessPiece chessPiece = new ChessPiece(Bitboard.teamColor(team), Bitboard.typeOf(piece));
+            int pawnRow = team == Bitboard.WHITE ? 2 : 7;
+            chessPiece.setMoved(chessPiece.getPieceType() != ChessPiece.PieceType.PAWN
+                    || Bitboard.row(square) != pawnRow);
+            board.addPiece(new ChessPosition(Bitboard.row(square), Bitboard.column(square)), chessPiece);
+        }
+        Fen.grantCastling(board, flags >>> CASTLING_SHIFT);
+        board.setLastMove(decodeMove(((data[2] & 0xFF) << 8) | (data[3] & 0xFF)));
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setGameOver((flags & GAME_OVER) != 0);
+
+        offset = HEADER_BYTES + (count + 1) / 2;
+        int[] position = {offset};
+        game.setHalfmoveClock(readVarInt(data, position));
+        game.setFullmoveNumber(readVarInt(data, position));
+        int keyCount = readVarInt(data, position);
+        long[] keys = new long[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = readLong(data, position[0]);
+            position[0] += Long.BYTES;
+        }
+        game.setRecentKeys(keys);
+        return game;
+    }
+
+    /**
+     * Packs a move into 15 bits: start square, end square and promotion
+     *
+     * @return the packed move, or all 16 bits set for no move
+     */
+    public static int encodeMove(ChessMove move) {
+        if (move == null) {
+            return NO_MOVE;
+        }
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        return Bitboard.square(move.getStartPosition())
+                | (Bitboard.square(move.getEndPosition()) << 6)
+                | ((promotion == null ? 0 : promotion.ordinal() + 1) << 12);
+    }
+
+    /**
+     * @param encoded a move packed by {@link #encodeMove}
+     * @return the move, or null for no move
+     */
+    public static ChessMove decodeMove(int encoded) {
+        if (encoded == NO_MOVE) {
+            return null;
+        }
+        int from = encoded & 0x3F;
+        int to = (encoded >>> 6) & 0x3F;
+        int promotion = (encoded >>> 12) & 0x7;
+        return new ChessMove(new ChessPosition(Bitboard.row(from), Bitboard.column(from)),
+                new ChessPosition(Bitboard.row(to), Bitboard.column(to)),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+
+    private static void writeLong(byte[] data, int offset, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            data[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    // seven bits per byte, low bits first, the top bit set on all but the last byte
+    private static int writeVarInt(byte[] data, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            data[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarInt(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Bad number in game state");
+    }
+}
@@ -0,0 +1,29 @@
+package chess;
+
+/**
+ * The state of a game from the point of view of the team whose turn it is
+ */
+public enum GameStatus {
+    IN_PROGRESS,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    /** The same position has come up for the third time with the same team to move */
+    DRAW_BY_REPETITION,
+    /** Fifty moves by each team without a capture or a pawn move */
+    DRAW_BY_FIFTY_MOVES;
+
+    /**
+     * @return True if no more moves can be made
+     */
+    public boolean isOver() {
+        return this != IN_PROGRESS && this != CHECK;
+    }
+
+    /**
+     * @return True if the game ended without a winner
+     */
+    public boolean isDraw() {
+        return this == STALEMATE || this == DRAW_BY_REPETITION || this == DRAW_BY_FIFTY_MOVES;
+    }
+}
@@ -0,0 +1,212 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Magic bitboard tables for rook and bishop attacks.
+ * <p>
+ * Only the pieces on a slider's rays, short of the board edge, can change where
+ * it attacks. Multiplying those pieces by a per-square magic number gathers them
+ * into the top bits of the product, so the product shifted down is an index into a
+ * table holding the attacks for that arrangement of blockers. A lookup is one
+ * mask, one multiply, one shift and one table read.
+ * <p>
+ * The magic numbers below were found by {@link #main}, which searches random
+ * sparse numbers from a fixed seed; searching at class load took several hundred
+ * milliseconds before the JIT warmed up. The tables themselves are filled from
+ * the ray walk in {@link Attacks} when the class loads, so the two always agree.
+ */
+public class Magics {
+
+    private static final long SEED = 0x6D61676963L;
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final int[] ROOK_DIRECTIONS = {Attacks.NORTH, Attacks.EAST, Attacks.SOUTH, Attacks.WEST};
+    private static final int[] BISHOP_DIRECTIONS = {
+            Attacks.NORTH_EAST, Attacks.NORTH_WEST, Attacks.SOUTH_EAST, Attacks.SOUTH_WEST
+    };
+
+    private static final long[] ROOK_MAGIC = {
+            0x5080054001203180L, 0x0040400020001000L, 0x4180200180300019L,
+            0x8100210004081000L, 0xC600080420100200L, 0x0200241200032830L,
+            0x1480800081000200L, 0x0100110003408822L, 0x8004800020884001L,
+            0x0000802000400088L, 0x6002001604804020L, 0x0802000C10420020L,
+            0x0202800400080281L, 0x4002800200800400L, 0x2240808001000200L,
+            0x0002002080440102L, 0x01C0808000204006L, 0x2010004020004000L,
+            0x0830010100200040L, 0x0040220040100A00L, 0x2468004040040200L,
+            0x40A2008080040002L, 0x0005410100020004L, 0x0011820001008044L,
+            0xC640400080009020L, 0x0040500840002000L, 0x0022008200201040L,
+            0x0222001200082040L, 0xD004080080040080L, 0x0126008080020400L,
+            0xD014420400104801L, 0x0000800180004300L, 0x0080002000404000L,
+            0x8100201000C00140L, 0x1040200082801004L, 0x000201200A004010L,
+            0x0001001005000800L, 0x0018040080800200L, 0x0000D10A0C004810L,
+            0x0000889442002104L, 0x1080804000248000L, 0x1000201000404000L,
+            0x02A1004020010010L, 0x8840100008008080L, 0x4000080004008080L,
+            0x9024000402008080L, 0xA424040200010100L, 0x8480074424860011L,
+            0x2100800020401880L, 0x2900400080200080L, 0x2000188200402200L,
+            0x2030220810010300L, 0x2004080080040080L, 0x2208800400020080L,
+            0x440100220014B100L, 0x250020A400410200L, 0x204A102100800041L,
+            0x0022023320830042L, 0x5008402001001409L, 0x0080100005002009L,
+            0x000A006004081006L, 0x4411000204000801L, 0x0000061088104504L,
+            0x840C010024004092L
+    };
+
+    private static final long[] BISHOP_MAGIC = {
+            0x4111200804802140L, 0xA022100C30848020L, 0x0010840040480080L,
+            0x28024081001860E8L, 0x08A450C020910520L, 0x00950C1240011000L,
+            0x800402080208A090L, 0x0000440041101054L, 0x62C0500410042C44L,
+            0x089A600800808084L, 0x0000041806024424L, 0x8000082040480000L,
+            0x0808020210040380L, 0x10000A02822000B0L, 0xC000020642264000L,
+            0x0400145100982000L, 0x5040020810810208L, 0x8020840208810100L,
+            0x4110200104008010L, 0x0040840802004440L, 0x010A004420210100L,
+            0x0002410200522022L, 0x8A04100044140401L, 0x4901010201110122L,
+            0x0920108184502201L, 0x8182A00008480090L, 0x6052500101150200L,
+            0x0044010110200880L, 0x0001080409004008L, 0x0002020104110080L,
+            0x0004010042A49022L, 0x08084A0021010108L, 0x0808084120481205L,
+            0x0048080881848106L, 0x0002005001944100L, 0x2804400820020200L,
+            0x0840084100007100L, 0x00220401C1080800L, 0x1081041102040108L,
+            0x040403808809AC02L, 0x000884200820E000L, 0x8008421004021030L,
+            0x00AC420040400401L, 0x410010A214000802L, 0xA004400408204500L,
+            0x0C20200040414880L, 0x4110020831000041L, 0x2104011046114100L,
+            0x00040A2104200080L, 0x4008421090282200L, 0x0008088068280714L,
+            0x8200082084040800L, 0x089000090B040004L, 0xC808040830410103L,
+            0x0069101022004100L, 0x00C8420882021004L, 0x8102020084010802L,
+            0x000413C402480200L, 0x0000002040441048L, 0x0420020C11040914L,
+            0x0001082010202204L, 0x4009042820080894L, 0x4000454802180200L,
+            0x1820025001010010L
+    };
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASK[square] = relevantBlockers(square, ROOK_DIRECTIONS);
+            ROOK_SHIFT[square] = 64 - Long.bitCount(ROOK_MASK[square]);
+            ROOK_TABLE[square] = new long[1 << Long.bitCount(ROOK_MASK[square])];
+            if (!fill(square, ROOK_MASK[square], ROOK_MAGIC[square], ROOK_SHIFT[square], ROOK_DIRECTIONS,
+                    ROOK_TABLE[square], new int[ROOK_TABLE[square].length], 1)) {
+                throw new IllegalStateException("Rook magic does not fit square " + square);
+            }
+
+            BISHOP_MASK[square] = relevantBlockers(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFT[square] = 64 - Long.bitCount(BISHOP_MASK[square]);
+            BISHOP_TABLE[square] = new long[1 << Long.bitCount(BISHOP_MASK[square])];
+            if (!fill(square, BISHOP_MASK[square], BISHOP_MAGIC[square], BISHOP_SHIFT[square], BISHOP_DIRECTIONS,
+                    BISHOP_TABLE[square], new int[BISHOP_TABLE[square].length], 1)) {
+                throw new IllegalStateException("Bishop magic does not fit square " + square);
+            }
+        }
+    }
+
+    private Magics() {
+    }
+
+    public static long rook(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square]);
+        return ROOK_TABLE[square][index];
+    }
+
+    public static long bishop(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square]);
+        return BISHOP_TABLE[square][index];
+    }
+
+    /**
+     * The squares along the rays whose occupant can block them; the last square
+     * of each ray is left out since nothing lies behind it
+     */
+    private static long relevantBlockers(int square, int[] directions) {
+        long mask = 0L;
+        for (int direction : directions) {
+            long ray = Attacks.ray(direction, square);
+            if (ray != 0) {
+                int edge = direction < Attacks.SOUTH ? 63 - Long.numberOfLeadingZeros(ray)
+                        : Long.numberOfTrailingZeros(ray);
+                mask |= ray & ~(1L << edge);
+            }
+        }
+        return mask;
+    }
+
+    private static long slowAttacks(int square, long occupied, int[] directions) {
+        long attacks = 0L;
+        for (int direction : directions) {
+            attacks |= Attacks.rayAttacks(direction, square, occupied);
+        }
+        return attacks;
+    }
+
+    /**
+     * Fills a square's table for one magic number
+     *
+     * @param filledOnTry marks the slots written during this try, so one array can
+     *                    be reused across tries without clearing it
+     * @return False if two blocker arrangements with different attacks share a slot
+     */
+    private static boolean fill(int square, long mask, long magic, int shift, int[] directions, long[] table,
+                                int[] filledOnTry, int attempt) {
+        long blockers = 0L;
+        do {
+            long attacks = slowAttacks(square, blockers, directions);
+            int index = (int) ((blockers * magic) >>> shift);
+            if (filledOnTry[index] != attempt) {
+                filledOnTry[index] = attempt;
+                table[index] = attacks;
+            } else if (table[index] != attacks) {
+                return false;
+            }
+            // the next subset of the mask, counting through its bits
+            blockers = (blockers - mask) & mask;
+        } while (blockers != 0);
+        return true;
+    }
+
+    /**
+     * Tries sparse random numbers until one sends every blocker arrangement to a
+     * table slot that no arrangement with different attacks also uses
+     */
+    private static long findMagic(int square, long mask, int shift, int[] directions, SplittableRandom random) {
+        long[] table = new long[1 << (64 - shift)];
+        int[] filledOnTry = new int[table.length];
+        for (int attempt = 1; ; attempt++) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Long.bitCount((mask * magic) & 0xFF00_0000_0000_0000L) < 6) {
+                continue;
+            }
+            if (fill(square, mask, magic, shift, directions, table, filledOnTry, attempt)) {
+                return magic;
+            }
+        }
+    }
+
+    /**
+     * Searches for a fresh set of magic numbers and prints them in the form used
+     * above
+     */
+    public static void main(String[] args) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] rooks = new long[64];
+        long[] bishops = new long[64];
+        for (int square = 0; square < 64; square++) {
+            rooks[square] = findMagic(square, ROOK_MASK[square], ROOK_SHIFT[square], ROOK_DIRECTIONS, random);
+            bishops[square] = findMagic(square, BISHOP_MASK[square], BISHOP_SHIFT[square], BISHOP_DIRECTIONS, random);
+        }
+        print("ROOK_MAGIC", rooks);
+        print("BISHOP_MAGIC", bishops);
+    }
+
+    private static void print(String name, long[] magics) {
+        StringBuilder text = new StringBuilder("    private static final long[] " + name + " = {");
+        for (int i = 0; i < magics.length; i++) {
+            text.append(i % 3 == 0 ? "\n            " : " ")
+                    .append(String.format("0x%016XL", magics[i]))
+                    .append(i < magics.length - 1 ? "," : "\n");
+        }
+        System.out.println(text.append("    };"));
+    }
+}
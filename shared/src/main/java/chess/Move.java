@@ -0,0 +1,98 @@
+package chess;
+
+/**
+ * Moves packed into a single int, so they can be generated and stored without
+ * creating objects.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square (as in
+ * {@link Bitboard#square}), bits 12-14 the promotion piece type plus one (zero for
+ * no promotion), and bits 15-16 a flag for the moves that change more than the two
+ * squares. {@link ChessMove} remains the type used outside move generation;
+ * {@link #toChessMove} and {@link #matches} convert between the two.
+ */
+public class Move {
+
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int CASTLE = 2;
+    public static final int EN_PASSANT = 3;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final String FILES = "abcdefgh";
+
+    private Move() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 15);
+    }
+
+    public static int promotion(int from, int to, ChessPiece.PieceType type) {
+        return from | (to << 6) | ((type.ordinal() + 1) << 12);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 3;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (7 << 12)) != 0;
+    }
+
+    /**
+     * @return the piece type a pawn becomes, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotionType(int move) {
+        int type = (move >>> 12) & 7;
+        return type == 0 ? null : TYPES[type - 1];
+    }
+
+    public static ChessMove toChessMove(int move) {
+        int from = from(move);
+        int to = to(move);
+        return new ChessMove(new ChessPosition(Bitboard.row(from), Bitboard.column(from)),
+                new ChessPosition(Bitboard.row(to), Bitboard.column(to)), promotionType(move));
+    }
+
+    /**
+     * @return True if the packed move starts, ends and promotes the same way as the
+     * ChessMove; the flag is implied by the position
+     */
+    public static boolean matches(int move, ChessMove chessMove) {
+        return from(move) == Bitboard.square(chessMove.getStartPosition())
+                && to(move) == Bitboard.square(chessMove.getEndPosition())
+                && promotionType(move) == chessMove.getPromotionPiece();
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        StringBuilder text = new StringBuilder(5)
+                .append(squareName(from(move)))
+                .append(squareName(to(move)));
+        ChessPiece.PieceType promotion = promotionType(move);
+        if (promotion != null) {
+            text.append(promotion == ChessPiece.PieceType.KNIGHT ? 'n' : Character.toLowerCase(promotion.name().charAt(0)));
+        }
+        return text.toString();
+    }
+
+    private static String squareName(int square) {
+        return FILES.charAt(Bitboard.column(square) - 1) + Integer.toString(Bitboard.row(square));
+    }
+}
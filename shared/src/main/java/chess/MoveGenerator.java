@@ -0,0 +1,333 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Generates moves as packed {@link Move} ints straight from a {@link Bitboard}.
+ * <p>
+ * The board alone does not say whose turn it is, which castling rights remain or
+ * where a pawn may be taken en passant, so those are passed in: castling rights as
+ * a mask of the {@link ChessBoard} castling constants, and the en passant square as
+ * a square index, or -1 when there is none. {@link #castlingAfter} and
+ * {@link #enPassantAfter} give their values once a move is played.
+ * <p>
+ * Pseudo-legal generation follows the piece patterns only. Legal generation works
+ * out the pieces giving check and the pieces pinned to the king once, then emits
+ * only moves that are legal: when in check, moves that capture the checker or
+ * block its line; for a pinned piece, moves along the pin; and for the king,
+ * squares no enemy piece attacks. Only en passant, which removes two pieces from
+ * a row at once, is checked by playing it out.
+ */
+public class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+    };
+
+    // the castling rights that survive a move touching each square
+    private static final int[] CASTLING_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_KEPT, 15);
+        CASTLING_KEPT[Bitboard.square(1, 1)] &= ~ChessBoard.WHITE_QUEENSIDE;
+        CASTLING_KEPT[Bitboard.square(1, 8)] &= ~ChessBoard.WHITE_KINGSIDE;
+        CASTLING_KEPT[Bitboard.square(1, 5)] &= ~(ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE);
+        CASTLING_KEPT[Bitboard.square(8, 1)] &= ~ChessBoard.BLACK_QUEENSIDE;
+        CASTLING_KEPT[Bitboard.square(8, 8)] &= ~ChessBoard.BLACK_KINGSIDE;
+        CASTLING_KEPT[Bitboard.square(8, 5)] &= ~(ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE);
+    }
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds every pseudo-legal move of a team to the list
+     */
+    public static void generate(Bitboard bits, int team, int castling, int enPassant, MoveList moves) {
+        long pieces = bits.team(team);
+        while (pieces != 0) {
+            generatePiece(bits, Long.numberOfTrailingZeros(pieces), castling, enPassant, moves);
+            pieces &= pieces - 1;
+        }
+    }
+
+    /**
+     * Adds the pseudo-legal moves of the piece on a square to the list
+     */
+    public static void generatePiece(Bitboard bits, int square, int castling, int enPassant, MoveList moves) {
+        int piece = bits.pieceAt(square);
+        if (piece == Bitboard.EMPTY) {
+            return;
+        }
+        int team = Bitboard.teamOf(piece);
+        if (Bitboard.typeOf(piece) == ChessPiece.PieceType.KING) {
+            addTargets(square, Attacks.king(square) & ~bits.team(team), moves);
+            addCastles(bits, square, team, castling, moves);
+        } else {
+            addPieceMoves(bits, square, piece, enPassant, -1L, false, moves);
+        }
+    }
+
+    /**
+     * Adds every legal move of a team to the list
+     */
+    public static void generateLegal(Bitboard bits, int team, int castling, int enPassant, MoveList moves) {
+        generateLegal(bits, team, castling, enPassant, -1L, false, moves);
+    }
+
+    /**
+     * Adds the legal moves of the piece on a square to the list
+     */
+    public static void generatePieceLegal(Bitboard bits, int square, int castling, int enPassant, MoveList moves) {
+        int piece = bits.pieceAt(square);
+        if (piece != Bitboard.EMPTY) {
+            generateLegal(bits, Bitboard.teamOf(piece), castling, enPassant, 1L << square, false, moves);
+        }
+    }
+
+    /**
+     * Stops at the first piece found with a legal move, trying the king first, so
+     * a status check does not generate every move
+     *
+     * @return True if the team has at least one legal move
+     */
+    public static boolean hasLegalMove(Bitboard bits, int team, int castling, int enPassant, MoveList scratch) {
+        scratch.clear();
+        generateLegal(bits, team, castling, enPassant, -1L, true, scratch);
+        return !scratch.isEmpty();
+    }
+
+    /**
+     * @param from        the squares whose pieces should have their moves generated
+     * @param stopAtFirst whether to stop after the first piece that adds a move
+     */
+    private static void generateLegal(Bitboard bits, int team, int castling, int enPassant, long from,
+                                      boolean stopAtFirst, MoveList moves) {
+        int king = bits.kingSquare(team);
+        if (king < 0) {
+            // nothing to keep safe, so every pseudo-legal move is legal
+            for (long pieces = bits.team(team) & from; pieces != 0; pieces &= pieces - 1) {
+                generatePiece(bits, Long.numberOfTrailingZeros(pieces), castling, enPassant, moves);
+                if (stopAtFirst && !moves.isEmpty()) {
+                    return;
+                }
+            }
+            return;
+        }
+        int enemy = 1 - team;
+        long occupied = bits.occupied();
+        long checkers = Attacks.attackers(bits, king, enemy, occupied);
+
+        if ((from & (1L << king)) != 0) {
+            // the king is lifted off the board so it cannot shelter behind itself from a slider
+            long kingless = occupied & ~(1L << king);
+            for (long steps = Attacks.king(king) & ~bits.team(team); steps != 0; steps &= steps - 1) {
+                int to = Long.numberOfTrailingZeros(steps);
+                if (Attacks.attackers(bits, to, enemy, kingless) == 0) {
+                    moves.add(Move.of(king, to));
+                }
+            }
+            if (checkers == 0) {
+                addLegalCastles(bits, king, team, castling, moves);
+            }
+            if (stopAtFirst && !moves.isEmpty()) {
+                return;
+            }
+        }
+        if ((checkers & (checkers - 1)) != 0) {
+            // in double check only the king can move
+            return;
+        }
+
+        long allowed = checkers == 0 ? -1L
+                : checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+        long pinned = pinned(bits, team, king);
+        for (long pieces = bits.team(team) & from & ~(1L << king); pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            long mask = allowed;
+            if ((pinned & (1L << square)) != 0) {
+                mask &= Attacks.line(king, square);
+            }
+            addPieceMoves(bits, square, bits.pieceAt(square), enPassant, mask, true, moves);
+            if (stopAtFirst && !moves.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the team's pieces that stand alone between their king and an enemy
+     * slider aimed at it
+     */
+    private static long pinned(Bitboard bits, int team, int king) {
+        int enemy = 1 - team;
+        long queens = bits.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        long snipers = (Attacks.rook(king, 0L) & (bits.pieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (Attacks.bishop(king, 0L) & (bits.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens));
+        long occupied = bits.occupied();
+        long pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long between = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (between != 0 && (between & (between - 1)) == 0) {
+                pinned |= between & bits.team(team);
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Determines if a pseudo-legal move keeps the mover's king safe
+     *
+     * @param bits the position, which is played on and restored
+     * @param move a move from {@link #generate}
+     * @return True if the move is legal
+     */
+    public static boolean isLegal(Bitboard bits, int move) {
+        int from = Move.from(move);
+        int team = Bitboard.teamOf(bits.pieceAt(from));
+        int enemy = 1 - team;
+        if (Move.flag(move) == Move.CASTLE) {
+            int passing = (from + Move.to(move)) >>> 1;
+            if (Attacks.isSquareAttacked(bits, from, enemy) || Attacks.isSquareAttacked(bits, passing, enemy)) {
+                return false;
+            }
+        }
+        int captured = bits.make(move);
+        int king = bits.kingSquare(team);
+        boolean legal = king < 0 || !Attacks.isSquareAttacked(bits, king, enemy);
+        bits.unmake(move, captured);
+        return legal;
+    }
+
+    /**
+     * @return the castling rights left after a move; moving a king or rook, or
+     * capturing a rook, gives up the rights that depend on it
+     */
+    public static int castlingAfter(int castling, int move) {
+        return castling & CASTLING_KEPT[Move.from(move)] & CASTLING_KEPT[Move.to(move)];
+    }
+
+    /**
+     * @return the en passant square after a move, or -1
+     */
+    public static int enPassantAfter(int move) {
+        return Move.flag(move) == Move.DOUBLE_PUSH ? (Move.from(move) + Move.to(move)) >>> 1 : -1;
+    }
+
+    /**
+     * Adds the moves of any piece but the king
+     *
+     * @param allowed      the only squares the piece may move to
+     * @param legalOnly    whether an en passant capture must be checked for
+     *                     exposing the king before it is added
+     */
+    private static void addPieceMoves(Bitboard bits, int square, int piece, int enPassant, long allowed,
+                                      boolean legalOnly, MoveList moves) {
+        int team = Bitboard.teamOf(piece);
+        long targets = ~bits.team(team) & allowed;
+        long occupied = bits.occupied();
+        switch (Bitboard.typeOf(piece)) {
+            case QUEEN -> addTargets(square, Attacks.queen(square, occupied) & targets, moves);
+            case BISHOP -> addTargets(square, Attacks.bishop(square, occupied) & targets, moves);
+            case KNIGHT -> addTargets(square, Attacks.knight(square) & targets, moves);
+            case ROOK -> addTargets(square, Attacks.rook(square, occupied) & targets, moves);
+            case PAWN -> addPawnMoves(bits, square, team, enPassant, allowed, legalOnly, moves);
+            case KING -> addTargets(square, Attacks.king(square) & targets, moves);
+        }
+    }
+
+    /**
+     * Adds a move from the square to each square in the mask
+     */
+    private static void addTargets(int square, long targets, MoveList moves) {
+        while (targets != 0) {
+            moves.add(Move.of(square, Long.numberOfTrailingZeros(targets)));
+            targets &= targets - 1;
+        }
+    }
+
+    /**
+     * Castling needs the right, and empty squares between king and rook; whether
+     * the king passes through check is left to {@link #isLegal}
+     */
+    private static void addCastles(Bitboard bits, int square, int team, int castling, MoveList moves) {
+        int home = (team == Bitboard.WHITE) ? Bitboard.square(1, 5) : Bitboard.square(8, 5);
+        if (square != home) {
+            return;
+        }
+        int kingside = (team == Bitboard.WHITE) ? ChessBoard.WHITE_KINGSIDE : ChessBoard.BLACK_KINGSIDE;
+        int queenside = (team == Bitboard.WHITE) ? ChessBoard.WHITE_QUEENSIDE : ChessBoard.BLACK_QUEENSIDE;
+        long occupied = bits.occupied();
+        if ((castling & kingside) != 0 && (occupied & (3L << (square + 1))) == 0) {
+            moves.add(Move.of(square, square + 2, Move.CASTLE));
+        }
+        if ((castling & queenside) != 0 && (occupied & (7L << (square - 3))) == 0) {
+            moves.add(Move.of(square, square - 2, Move.CASTLE));
+        }
+    }
+
+    /**
+     * Castles for a king not in check, keeping those whose passing and landing
+     * squares are not attacked
+     */
+    private static void addLegalCastles(Bitboard bits, int king, int team, int castling, MoveList moves) {
+        int start = moves.size();
+        addCastles(bits, king, team, castling, moves);
+        int kept = start;
+        for (int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int to = Move.to(move);
+            if (!Attacks.isSquareAttacked(bits, (king + to) >>> 1, 1 - team)
+                    && !Attacks.isSquareAttacked(bits, to, 1 - team)) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    private static void addPawnMoves(Bitboard bits, int square, int team, int enPassant, long allowed,
+                                     boolean legalOnly, MoveList moves) {
+        int forward = (team == Bitboard.WHITE) ? 8 : -8;
+        int startRow = (team == Bitboard.WHITE) ? 2 : 7;
+        int lastRow = (team == Bitboard.WHITE) ? 8 : 1;
+        int enPassantRow = (team == Bitboard.WHITE) ? 6 : 3;
+        int row = Bitboard.row(square);
+        if (row == lastRow) {
+            return;
+        }
+        boolean promotes = row + (forward >> 3) == lastRow;
+
+        int ahead = square + forward;
+        if (bits.pieceAt(ahead) == Bitboard.EMPTY) {
+            if ((allowed & (1L << ahead)) != 0) {
+                addPawnMove(square, ahead, promotes, moves);
+            }
+            int twoAhead = ahead + forward;
+            if (row == startRow && bits.pieceAt(twoAhead) == Bitboard.EMPTY && (allowed & (1L << twoAhead)) != 0) {
+                moves.add(Move.of(square, twoAhead, Move.DOUBLE_PUSH));
+            }
+        }
+        long attacks = Attacks.pawn(team, square);
+        for (long captures = attacks & bits.team(1 - team) & allowed; captures != 0; captures &= captures - 1) {
+            addPawnMove(square, Long.numberOfTrailingZeros(captures), promotes, moves);
+        }
+        if (enPassant >= 0 && Bitboard.row(enPassant) == enPassantRow && (attacks & (1L << enPassant)) != 0) {
+            int move = Move.of(square, enPassant, Move.EN_PASSANT);
+            // the captured pawn and the capturing one both leave the row, which no mask captures
+            if (!legalOnly || isLegal(bits, move)) {
+                moves.add(move);
+            }
+        }
+    }
+
+    private static void addPawnMove(int from, int to, boolean promotes, MoveList moves) {
+        if (!promotes) {
+            moves.add(Move.of(from, to));
+            return;
+        }
+        for (ChessPiece.PieceType type : PROMOTIONS) {
+            moves.add(Move.promotion(from, to, type));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package chess;
+
+/**
+ * Everything needed to take back a move made with
+ * {@link ChessGame#makeMove(ChessMove, MoveUndo)}.
+ * <p>
+ * A record can be reused for any number of moves, so callers that search
+ * through many moves only need one record per ply.
+ */
+public class MoveUndo {
+
+    ChessPosition start;
+    ChessPosition end;
+    ChessPiece piece;
+    boolean pieceMoved;
+
+    ChessPiece captured;
+    ChessPosition capturedPosition;
+
+    ChessPosition rookStart;
+    ChessPosition rookEnd;
+    ChessPiece rook;
+    boolean rookMoved;
+
+    ChessMove lastMove;
+    ChessGame.TeamColor teamTurn;
+    int halfmoveClock;
+    int fullmoveNumber;
+    int historyLength;
+}
@@ -0,0 +1,132 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches one position on several threads at once (Lazy SMP).
+ * <p>
+ * Every thread runs its own {@link Search} over the whole tree, and all of them
+ * share one {@link TranspositionTable}. The threads do not divide the work
+ * between them; they help each other through the table, where one thread's
+ * results become another's cutoffs and first moves. Half of the helper threads
+ * start one ply deeper than the main thread, so the threads drift apart in the
+ * tree instead of searching the same nodes in the same order.
+ * <p>
+ * The main search runs on the calling thread and decides when the search ends:
+ * once it finishes, the helpers are stopped. The answer is the result of the
+ * thread that finished the deepest search, preferring the main thread on a tie,
+ * with the nodes of every thread counted.
+ * <p>
+ * A ParallelSearch owns its helper threads and must be closed when no longer
+ * needed. Like a Search, it must only be used by one thread at a time.
+ */
+public class ParallelSearch implements AutoCloseable {
+
+    private final Search[] searches;
+    private final TranspositionTable table;
+    private final ExecutorService helpers;
+
+    /**
+     * @param threads the number of threads to search with, including the caller's
+     * @param table   the table the threads share
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread: " + threads);
+        }
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table);
+        }
+        helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Searches for the best move within a budget
+     *
+     * @param game            the game to search; it is not changed
+     * @param maxDepth        the deepest search to run, in plies
+     * @param timeLimitMillis how long to search for, or 0 for no limit
+     * @return the result of the deepest finished search, with the nodes of all threads
+     */
+    public Search.Result search(ChessGame game, int maxDepth, long timeLimitMillis) {
+        long start = System.nanoTime();
+        table.newSearch();
+        for (Search search : searches) {
+            search.clearStop();
+        }
+
+        List<Future<Search.Result>> running = new ArrayList<>();
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            // each thread searches its own copy of the bitboard, but the game's lazy
+            // bitboard mirror is not safe to build from several threads at once
+            ChessGame copy = game.copy();
+            int firstDepth = 1 + (i & 1);
+            running.add(helpers.submit(() -> helper.search(copy, firstDepth, maxDepth, timeLimitMillis)));
+        }
+
+        Search.Result best = searches[0].search(game, 1, maxDepth, timeLimitMillis);
+        long nodes = best.getNodes();
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+        }
+        for (Future<Search.Result> helper : running) {
+            Search.Result result = join(helper);
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth() && result.getMove() != null) {
+                best = result;
+            }
+        }
+        return best.withTotals(nodes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return the best move, or null if the team to move has none
+     */
+    public ChessMove bestMove(ChessGame game, int maxDepth, long timeLimitMillis) {
+        return search(game, maxDepth, timeLimitMillis).getMove();
+    }
+
+    /**
+     * Asks a running search to finish; it returns the result of the deepest depth
+     * finished so far. May be called from any thread.
+     */
+    public void stop() {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    private static Search.Result join(Future<Search.Result> helper) {
+        try {
+            return helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a search thread", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search thread failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A cache of pawn structure scores, keyed by the Zobrist key of the pawns alone.
+ * <p>
+ * Most moves in a search do not move a pawn, so the same pawn structure is scored
+ * over and over; this table remembers each score by {@link Bitboard#pawnKey()}.
+ * Entries are replaced whenever another structure lands in their slot. The empty
+ * slots hold key 0, which is the key of a board with no pawns, and a score of 0,
+ * which is that board's score, so they never give a wrong answer.
+ * <p>
+ * Hits and misses are counted so the size can be chosen from the hit rate. A
+ * table is not safe to share between threads; each {@link Search} has its own.
+ */
+public class PawnHashTable {
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param entries the number of structures to hold, rounded down to a power of two
+     */
+    public PawnHashTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Pawn table needs at least one entry: " + entries);
+        }
+        int size = Integer.highestOneBit(entries);
+        keys = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the {@link Evaluation#pawnStructure} score of the board's pawns,
+     * from the table if it is there
+     */
+    public int score(Bitboard bits) {
+        long key = bits.pawnKey();
+        int index = (int) (key >>> 32) & mask;
+        if (keys[index] == key) {
+            hits++;
+            return scores[index];
+        }
+        misses++;
+        int score = Evaluation.pawnStructure(bits.pieces(Bitboard.WHITE, ChessPiece.PieceType.PAWN),
+                bits.pieces(Bitboard.BLACK, ChessPiece.PieceType.PAWN));
+        keys[index] = key;
+        scores[index] = score;
+        return score;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of lookups answered from the table, or 0 before any lookup
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(scores, 0);
+        resetCounters();
+    }
+}
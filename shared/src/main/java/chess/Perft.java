@@ -0,0 +1,332 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the move paths from a position to a fixed depth (perft).
+ * <p>
+ * Perft drives {@link MoveGenerator} and {@link Bitboard#make} over every line
+ * of play, so a count that matches the published figure for a position is strong
+ * evidence the move generator is right, and the time taken is a throughput number
+ * for it. The count runs on a copy of the game's bitboard with one
+ * {@link MoveList} per ply, so it allocates nothing once started.
+ * <p>
+ * The parallel variants split the tree across a {@link ForkJoinPool}. Every task
+ * works on its own copy of the bitboard, so the counts are the same as the
+ * single-threaded ones.
+ * <p>
+ * Run {@link #main} with no arguments to check every reference position, with a
+ * maximum depth and thread count to check them to that depth, or with a FEN
+ * string, a depth and a thread count to count a single position.
+ */
+public class Perft {
+
+    /**
+     * A position with published perft counts, where {@code nodes[d - 1]} is the
+     * count at depth d
+     */
+    public static class Reference {
+        private final String name;
+        private final String fen;
+        private final long[] nodes;
+
+        public Reference(String name, String fen, long... nodes) {
+            this.name = name;
+            this.fen = fen;
+            this.nodes = nodes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+
+        public int getMaxDepth() {
+            return nodes.length;
+        }
+
+        public long getNodes(int depth) {
+            return nodes[depth - 1];
+        }
+    }
+
+    /**
+     * The standard perft positions along with smaller positions that each test one
+     * rule that move generators tend to get wrong
+     */
+    public static final List<Reference> REFERENCES = List.of(
+            new Reference("Initial position", Fen.START_POSITION,
+                    20, 400, 8902, 197281, 4865609),
+            new Reference("Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2039, 97862, 4085603),
+            new Reference("Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2812, 43238, 674624),
+            new Reference("Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9467, 422333),
+            new Reference("Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44, 1486, 62379, 2103487),
+            new Reference("Illegal en passant (discovered check)", "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1",
+                    18, 92, 1670, 10138, 185429, 1134888),
+            new Reference("Illegal en passant (pinned pawn)", "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+                    13, 102, 1266, 10276, 135655, 1015133),
+            new Reference("En passant gives check", "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+                    15, 126, 1928, 13931, 206379, 1440467),
+            new Reference("Short castling gives check", "5k2/8/8/8/8/8/8/4K2R w K - 0 1",
+                    15, 66, 1198, 6399, 120330, 661072),
+            new Reference("Long castling gives check", "3k4/8/8/8/8/8/8/R3K3 w Q - 0 1",
+                    16, 71, 1286, 7418, 141077, 803711),
+            new Reference("Castling rights", "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1",
+                    26, 1141, 27826, 1274206),
+            new Reference("Castling prevented", "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1",
+                    44, 1494, 50509, 1720476),
+            new Reference("Promote out of check", "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1",
+                    11, 133, 1442, 19174, 266199, 3821001),
+            new Reference("Discovered check", "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1",
+                    29, 165, 5160, 31961, 1004658),
+            new Reference("Promote to give check", "4k3/1P6/8/8/8/8/K7/8 w - - 0 1",
+                    9, 40, 472, 2661, 38983, 217342),
+            new Reference("Underpromote to give check", "8/P1k5/K7/8/8/8/8/8 w - - 0 1",
+                    6, 27, 273, 1329, 18135, 92683),
+            new Reference("Self stalemate", "K1k5/8/P7/8/8/8/8/8 w - - 0 1",
+                    2, 6, 13, 63, 382, 2217),
+            new Reference("Stalemate and checkmate (white)", "8/k1P5/8/1K6/8/8/8/8 w - - 0 1",
+                    10, 25, 268, 926, 10857, 43261, 567584),
+            new Reference("Stalemate and checkmate (black)", "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1",
+                    37, 183, 6559, 23527)
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf nodes of the move tree below a position
+     *
+     * @param game  the position to start from; it is not modified
+     * @param depth how many plies to play out
+     * @return the number of distinct move paths of that length
+     */
+    public static long perft(ChessGame game, int depth) {
+        ChessBoard board = game.getBoard();
+        return perft(board.getBitboard().copy(), Bitboard.team(game.getTeamTurn()), board.castlingRights(),
+                board.enPassantIndex(), depth);
+    }
+
+    private static long perft(Bitboard bits, int team, int castling, int enPassant, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return count(bits, team, castling, enPassant, depth, moveLists(depth));
+    }
+
+    /**
+     * Splits the perft count by first move, which is how a wrong count is narrowed
+     * down to the move that is generated incorrectly
+     *
+     * @return each legal first move with the count of paths that start with it
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        ChessBoard board = game.getBoard();
+        Bitboard bits = board.getBitboard().copy();
+        int team = Bitboard.team(game.getTeamTurn());
+        int castling = board.castlingRights();
+        MoveList[] lists = moveLists(depth);
+        MoveGenerator.generateLegal(bits, team, castling, board.enPassantIndex(), lists[depth]);
+        for (int i = 0; i < lists[depth].size(); i++) {
+            int move = lists[depth].get(i);
+            int captured = bits.make(move);
+            long nodes = depth == 1 ? 1 : count(bits, 1 - team, MoveGenerator.castlingAfter(castling, move),
+                    MoveGenerator.enPassantAfter(move), depth - 1, lists);
+            bits.unmake(move, captured);
+            counts.put(Move.toChessMove(move), nodes);
+        }
+        return counts;
+    }
+
+    private static MoveList[] moveLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    private static long count(Bitboard bits, int team, int castling, int enPassant, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        moves.clear();
+        MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+        if (depth == 1) {
+            // the last ply only needs counting, not playing
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int captured = bits.make(move);
+            nodes += count(bits, 1 - team, MoveGenerator.castlingAfter(castling, move),
+                    MoveGenerator.enPassantAfter(move), depth - 1, lists);
+            bits.unmake(move, captured);
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the same leaf nodes as {@link #perft}, splitting the root moves across
+     * the pool
+     *
+     * @param game  the position to start from; it is not modified
+     * @param depth how many plies to play out
+     * @param pool  the pool to run the count on
+     * @return the number of distinct move paths of that length
+     */
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool) {
+        return parallelPerft(game, depth, 1, pool);
+    }
+
+    /**
+     * Counts the same leaf nodes as {@link #perft}, splitting the first
+     * {@code splitPlies} plies into separate tasks. Splitting the second ply as well
+     * gives a few hundred tasks instead of a few dozen, which keeps many cores busy
+     * when some root moves have far larger subtrees than others.
+     *
+     * @param game       the position to start from; it is not modified
+     * @param depth      how many plies to play out
+     * @param splitPlies how many plies near the root become separate tasks
+     * @param pool       the pool to run the count on
+     * @return the number of distinct move paths of that length
+     */
+    public static long parallelPerft(ChessGame game, int depth, int splitPlies, ForkJoinPool pool) {
+        return pool.invoke(PerftTask.of(game, depth, splitPlies));
+    }
+
+    /**
+     * Counts many positions at once, one task per position, such as when checking
+     * a position database. A depth of 1 gives the number of legal moves in each.
+     *
+     * @param games the positions to count; none of them are modified
+     * @param depth how many plies to play out from each
+     * @param pool  the pool to run the counts on
+     * @return the count for each game, in the same order
+     */
+    public static long[] perftAll(List<ChessGame> games, int depth, ForkJoinPool pool) {
+        List<PerftTask> tasks = new ArrayList<>(games.size());
+        for (ChessGame game : games) {
+            tasks.add(PerftTask.of(game, depth, 0));
+        }
+        return pool.invoke(new RecursiveTask<long[]>() {
+            @Override
+            protected long[] compute() {
+                invokeAll(tasks);
+                long[] counts = new long[tasks.size()];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = tasks.get(i).join();
+                }
+                return counts;
+            }
+        });
+    }
+
+    /**
+     * Counts one subtree on a bitboard owned by this task alone
+     */
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Bitboard bits;
+        private final int team;
+        private final int castling;
+        private final int enPassant;
+        private final int depth;
+        private final int splitPlies;
+
+        PerftTask(Bitboard bits, int team, int castling, int enPassant, int depth, int splitPlies) {
+            this.bits = bits;
+            this.team = team;
+            this.castling = castling;
+            this.enPassant = enPassant;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+
+        static PerftTask of(ChessGame game, int depth, int splitPlies) {
+            ChessBoard board = game.getBoard();
+            return new PerftTask(board.getBitboard().copy(), Bitboard.team(game.getTeamTurn()),
+                    board.castlingRights(), board.enPassantIndex(), depth, splitPlies);
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitPlies <= 0 || depth <= 1) {
+                return perft(bits, team, castling, enPassant, depth);
+            }
+            List<PerftTask> children = new ArrayList<>();
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                Bitboard child = bits.copy();
+                child.make(move);
+                children.add(new PerftTask(child, 1 - team, MoveGenerator.castlingAfter(castling, move),
+                        MoveGenerator.enPassantAfter(move), depth - 1, splitPlies - 1));
+            }
+            invokeAll(children);
+            long nodes = 0;
+            for (PerftTask child : children) {
+                nodes += child.join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length >= 2 && !isNumber(args[0])) {
+            int threads = args.length >= 3 ? Integer.parseInt(args[2]) : 1;
+            report(args[0], Fen.parse(args[0]), Integer.parseInt(args[1]), -1, threads);
+            return;
+        }
+        int maxDepth = args.length >= 1 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+        int threads = args.length >= 2 ? Integer.parseInt(args[1]) : 1;
+        boolean allPassed = true;
+        for (Reference reference : REFERENCES) {
+            int depth = Math.min(maxDepth, reference.getMaxDepth());
+            allPassed &= report(reference.getName(), Fen.parse(reference.getFen()), depth,
+                    reference.getNodes(depth), threads);
+        }
+        System.out.println(allPassed ? "All perft counts match" : "Perft MISMATCH");
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean isNumber(String arg) {
+        return arg.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean report(String name, ChessGame game, int depth, long expected, int threads) {
+        long start = System.nanoTime();
+        long nodes;
+        if (threads > 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                nodes = parallelPerft(game, depth, 2, pool);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            nodes = perft(game, depth);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        boolean passed = expected < 0 || nodes == expected;
+        System.out.printf("%-40s depth %d  nodes %,12d  %8.3fs  %,12.0f nps  %s%n", name, depth, nodes, seconds,
+                nodes / Math.max(seconds, 1e-9), expected < 0 ? "" : (passed ? "ok" : "expected " + expected));
+        return passed;
+    }
+}
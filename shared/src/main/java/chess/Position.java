@@ -0,0 +1,220 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * An immutable snapshot of a game position.
+ * <p>
+ * A position never changes once made, so the same snapshot can be handed to a
+ * serializer, to every connection broadcasting it and to analysis threads at once
+ * without copying or locking. Playing a move derives a new position, leaving this
+ * one as it was; the new position links back to this one, so a line of play
+ * shares its whole history instead of each snapshot carrying a copy of it.
+ * <p>
+ * Pieces are held in a {@link Bitboard} that is only ever read; work that plays
+ * moves on a board, such as legal move generation, is done on a copy.
+ */
+public final class Position {
+
+    private final Bitboard bits;
+    private final int team;
+    private final int castling;
+    private final int enPassant;
+    private final long key;
+    private final int lastMove;
+    private final Position previous;
+
+    // worked out on first use; any thread that races here computes the same value
+    private GameStatus status;
+
+    private Position(Bitboard bits, int team, int castling, int enPassant, int lastMove, Position previous) {
+        this.bits = bits;
+        this.team = team;
+        this.castling = castling;
+        this.enPassant = enPassant;
+        this.key = Zobrist.key(bits, team, castling, enPassant);
+        this.lastMove = lastMove;
+        this.previous = previous;
+    }
+
+    /**
+     * Takes a snapshot of a game; later changes to the game do not affect it
+     */
+    public static Position of(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        return new Position(board.getBitboard().copy(), Bitboard.team(game.getTeamTurn()), board.castlingRights(),
+                board.enPassantIndex(), Move.NONE, null);
+    }
+
+    /**
+     * Derives the position after a packed move
+     *
+     * @param move a legal move from {@link #legalMoves}
+     * @return the new position, whose {@link #previous} is this one
+     */
+    public Position play(int move) {
+        Bitboard next = bits.copy();
+        next.make(move);
+        return new Position(next, 1 - team, MoveGenerator.castlingAfter(castling, move),
+                MoveGenerator.enPassantAfter(move), move, this);
+    }
+
+    /**
+     * Derives the position after a move
+     *
+     * @throws InvalidMoveException if the move is not legal here
+     */
+    public Position play(ChessMove move) throws InvalidMoveException {
+        MoveList moves = legalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.matches(moves.get(i), move)) {
+                return play(moves.get(i));
+            }
+        }
+        throw new InvalidMoveException("Illegal move: " + move);
+    }
+
+    /**
+     * @return a new list of the legal moves of the team to move
+     */
+    public MoveList legalMoves() {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(bits.copy(), team, castling, enPassant, moves);
+        return moves;
+    }
+
+    /**
+     * @return the legal moves of the piece on a square, as {@link ChessMove}s
+     */
+    public Collection<ChessMove> validMoves(ChessPosition start) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generatePieceLegal(bits.copy(), Bitboard.square(start), castling, enPassant, moves);
+        Collection<ChessMove> valid = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            valid.add(Move.toChessMove(moves.get(i)));
+        }
+        return valid;
+    }
+
+    public GameStatus getStatus() {
+        GameStatus known = status;
+        if (known == null) {
+            boolean inCheck = isInCheck();
+            boolean noMoves = !MoveGenerator.hasLegalMove(bits.copy(), team, castling, enPassant, new MoveList());
+            if (inCheck) {
+                known = noMoves ? GameStatus.CHECKMATE : GameStatus.CHECK;
+            } else {
+                known = noMoves ? GameStatus.STALEMATE : GameStatus.IN_PROGRESS;
+            }
+            status = known;
+        }
+        return known;
+    }
+
+    public boolean isInCheck() {
+        int king = bits.kingSquare(team);
+        return king >= 0 && Attacks.isSquareAttacked(bits, king, 1 - team);
+    }
+
+    /**
+     * @return a new piece matching the one on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(ChessPosition position) {
+        int piece = bits.pieceAt(Bitboard.square(position));
+        if (piece == Bitboard.EMPTY) {
+            return null;
+        }
+        return new ChessPiece(Bitboard.teamColor(Bitboard.teamOf(piece)), Bitboard.typeOf(piece));
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return Bitboard.teamColor(team);
+    }
+
+    /**
+     * @return a mask of the {@link ChessBoard} castling constants
+     */
+    public int getCastlingRights() {
+        return castling;
+    }
+
+    /**
+     * @return the square a pawn skipped over on the last move, or null
+     */
+    public ChessPosition getEnPassantSquare() {
+        return enPassant < 0 ? null : new ChessPosition(Bitboard.row(enPassant), Bitboard.column(enPassant));
+    }
+
+    public long getZobristKey() {
+        return key;
+    }
+
+    /**
+     * @return the packed move that led here, or {@link Move#NONE} for a snapshot
+     * taken from a game
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * @return the position before {@link #getLastMove}, or null
+     */
+    public Position getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Builds a game in this position that can be changed freely
+     */
+    public ChessGame toGame() {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int piece = bits.pieceAt(square);
+            if (piece == Bitboard.EMPTY) {
+                continue;
+            }
+            ChessPiece chessPiece = new ChessPiece(Bitboard.teamColor(Bitboard.teamOf(piece)), Bitboard.typeOf(piece));
+            // as in Fen: only pawns on their start row and pieces that can still castle are unmoved
+            int pawnRow = Bitboard.teamOf(piece) == Bitboard.WHITE ? 2 : 7;
+            chessPiece.setMoved(chessPiece.getPieceType() != ChessPiece.PieceType.PAWN
+                    || Bitboard.row(square) != pawnRow);
+            board.addPiece(new ChessPosition(Bitboard.row(square), Bitboard.column(square)), chessPiece);
+        }
+        Fen.grantCastling(board, castling);
+        if (enPassant >= 0) {
+            // the pawn that skipped the square went from one side of it to the other
+            int step = Bitboard.row(enPassant) == 3 ? 8 : -8;
+            board.setLastMove(Move.toChessMove(Move.of(enPassant - step, enPassant + step)));
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(getTeamTurn());
+        return game;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Position that)) {
+            return false;
+        }
+        if (key != that.key || team != that.team || castling != that.castling || enPassant != that.enPassant) {
+            return false;
+        }
+        for (int piece = 0; piece < 12; piece++) {
+            if (bits.pieces(piece) != that.bits.pieces(piece)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+}
@@ -0,0 +1,523 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Finds a good move for the team to move in a game.
+ * <p>
+ * The search is a negamax alpha-beta search, deepened one ply at a time until the
+ * depth or time budget runs out; the best move of the last finished depth is the
+ * answer. Captures are played out past the last ply (quiescence search) so a
+ * position is never scored in the middle of an exchange. Moves are tried best
+ * first: the previous depth's best move at the root, then captures by most
+ * valuable victim and least valuable attacker (MVV-LVA), then quiet moves that
+ * caused a cutoff at the same ply before (killer moves), then quiet moves by how
+ * often they caused a cutoff anywhere (history heuristic).
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, so a position reached again,
+ * by another move order or in the next deeper iteration, is either answered from
+ * the table or searched with its previous best move first. Several searches may
+ * share one table.
+ * <p>
+ * The search plays moves on its own copy of the game's bitboard, so the game is
+ * never changed. A Search keeps its tables between calls and must only be used
+ * by one thread at a time; {@link #stop} may be called from any thread.
+ */
+public class Search {
+
+    public static final int INFINITY = 32_000;
+    public static final int MATE = 31_000;
+
+    static final int MAX_PLY = 128;
+    private static final int CHECK_TIME_EVERY = 2048;
+    private static final int MAX_MOVES = 256;
+    private static final int HISTORY_LIMIT = 50_000;
+    private static final int DEFAULT_TABLE_MB = 16;
+    private static final int PAWN_TABLE_ENTRIES = 1 << 14;
+
+    // move ordering bands, highest tried first
+    private static final int PREFERRED_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int PROMOTION_SCORE = 90_000;
+    private static final int KILLER_SCORE = 80_000;
+
+    /**
+     * What a search found
+     */
+    public static class Result {
+        private final int packedMove;
+        private final ChessMove move;
+        private final int score;
+        private final int depth;
+        private final long nodes;
+        private final long millis;
+
+        Result(int packedMove, int score, int depth, long nodes, long millis) {
+            this.packedMove = packedMove;
+            this.move = packedMove == Move.NONE ? null : Move.toChessMove(packedMove);
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.millis = millis;
+        }
+
+        /**
+         * @return the best move found, or null if the team to move has none
+         */
+        public ChessMove getMove() {
+            return move;
+        }
+
+        /**
+         * @return the score in centipawns for the team to move; scores within
+         * {@link #MAX_PLY} of {@link #MATE} are forced mates
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return the deepest search that finished
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isMate() {
+            return Math.abs(score) >= MATE - MAX_PLY;
+        }
+
+        /**
+         * @return the same move and score, counting the nodes and time of a whole
+         * parallel search
+         */
+        Result withTotals(long totalNodes, long totalMillis) {
+            return new Result(packedMove, score, depth, totalNodes, totalMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("move %s score %d depth %d nodes %d in %d ms",
+                    move == null ? "none" : Move.toString(packedMove), score, depth, nodes, millis);
+        }
+    }
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final long[] keys = new long[MAX_PLY + 1];
+    // moves since the last capture or pawn move, at each ply of the line
+    private final int[] clocks = new int[MAX_PLY + 1];
+    private final TranspositionTable table;
+    private final PawnHashTable pawnTable = new PawnHashTable(PAWN_TABLE_ENTRIES);
+
+    private Bitboard bits;
+    // the game's positions before the root since its last capture or pawn move, oldest first
+    private long[] gameKeys;
+    private int rootPreferred;
+    private int rootBest;
+    private long nodes;
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * @param table the table to keep results in, which other searches may share
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            moveLists[ply] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches for the best move within a budget
+     *
+     * @param game            the game to search; it is not changed
+     * @param maxDepth        the deepest search to run, in plies
+     * @param timeLimitMillis how long to search for, or 0 for no limit
+     * @return the best move of the last depth that finished in time
+     */
+    public Result search(ChessGame game, int maxDepth, long timeLimitMillis) {
+        stopRequested = false;
+        table.newSearch();
+        return search(game, 1, maxDepth, timeLimitMillis);
+    }
+
+    /**
+     * Runs iterative deepening from a given depth. Unlike the public search this
+     * neither clears an earlier {@link #stop()} nor starts a new generation in the
+     * table, since a {@link ParallelSearch} does both once for all its threads.
+     */
+    Result search(ChessGame game, int firstDepth, int maxDepth, long timeLimitMillis) {
+        ChessBoard board = game.getBoard();
+        bits = board.getBitboard().copy();
+        int team = Bitboard.team(game.getTeamTurn());
+        int castling = board.castlingRights();
+        int enPassant = board.enPassantIndex();
+        gameKeys = game.getRecentKeys();
+        clocks[0] = game.getHalfmoveClock();
+
+        long start = System.nanoTime();
+        deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        stopped = false;
+        nodes = 0;
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        for (int[] pieceHistory : history) {
+            Arrays.fill(pieceHistory, 0);
+        }
+
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completed = 0;
+        for (int depth = Math.max(1, firstDepth); depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            rootPreferred = bestMove;
+            rootBest = Move.NONE;
+            int score = negamax(team, castling, enPassant, depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            bestMove = rootBest;
+            bestScore = score;
+            completed = depth;
+            if (Math.abs(score) >= MATE - MAX_PLY) {
+                // a forced mate only gets longer with more depth
+                break;
+            }
+        }
+        if (bestMove == Move.NONE) {
+            // out of time before the first depth finished: any legal move beats none
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+            bestMove = moves.isEmpty() ? Move.NONE : moves.get(0);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new Result(bestMove, bestScore, completed, nodes, millis);
+    }
+
+    /**
+     * Searches for the best move within a budget
+     *
+     * @return the best move, or null if the team to move has none
+     */
+    public ChessMove bestMove(ChessGame game, int maxDepth, long timeLimitMillis) {
+        return search(game, maxDepth, timeLimitMillis).getMove();
+    }
+
+    /**
+     * Asks a running search to finish; it returns the result of the last depth it
+     * finished
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * @return this search's pawn structure cache, whose counters show how often it
+     * was hit
+     */
+    public PawnHashTable getPawnTable() {
+        return pawnTable;
+    }
+
+    private int negamax(int team, int castling, int enPassant, int depth, int ply, int alpha, int beta) {
+        boolean inCheck = isInCheck(team);
+        if (inCheck) {
+            // look one ply further at checks so a mate just past the horizon is not missed
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(team, enPassant, ply, alpha, beta);
+        }
+        if (countNode()) {
+            return 0;
+        }
+        long key = Zobrist.key(bits, team, castling, enPassant);
+        keys[ply] = key;
+        if (ply > 0 && clocks[ply] >= ChessGame.FIFTY_MOVES) {
+            // a mate on the move that reaches the limit still counts
+            return inCheck && hasNoMoves(team, castling, enPassant, ply) ? -MATE + ply : 0;
+        }
+        if (ply > 0 && repeats(ply, key)) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluate(team);
+        }
+
+        int tableMove = Move.NONE;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+        if (moves.isEmpty()) {
+            // mates nearer the root score higher, so the shortest mate is preferred
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, ply == 0 && rootPreferred != Move.NONE ? rootPreferred : tableMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, ply, i);
+            boolean pawnMove = Bitboard.typeOf(bits.pieceAt(Move.from(move))) == ChessPiece.PieceType.PAWN;
+            int captured = bits.make(move);
+            clocks[ply + 1] = pawnMove || captured != Bitboard.EMPTY ? 0 : clocks[ply] + 1;
+            int score = -negamax(1 - team, MoveGenerator.castlingAfter(castling, move),
+                    MoveGenerator.enPassantAfter(move), depth - 1, ply + 1, -beta, -alpha);
+            bits.unmake(move, captured);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBest = move;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                if (captured == Bitboard.EMPTY && !Move.isPromotion(move)) {
+                    rememberCutoff(move, ply, depth);
+                }
+                break;
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Mate scores count plies from the root; the table holds them counted from the
+     * position itself, so they stay right wherever in the tree it is reached
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Plays out captures until the position is quiet, letting the side to move
+     * stop capturing whenever the current score is already good enough
+     */
+    private int quiescence(int team, int enPassant, int ply, int alpha, int beta) {
+        if (countNode()) {
+            return 0;
+        }
+        int standPat = evaluate(team);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        // castling is never a capture, so the rights do not matter here
+        MoveGenerator.generateLegal(bits, team, 0, enPassant, moves);
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (isCapture(move) || Move.promotionType(move) == ChessPiece.PieceType.QUEEN) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+        scoreMoves(moves, ply, Move.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, ply, i);
+            int captured = bits.make(move);
+            int score = -quiescence(1 - team, -1, ply + 1, -beta, -alpha);
+            bits.unmake(move, captured);
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Counts a node and checks the clock every so often
+     *
+     * @return True if the search has been stopped
+     */
+    private boolean countNode() {
+        nodes++;
+        if ((nodes & (CHECK_TIME_EVERY - 1)) == 0 && (stopRequested || System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * A position that already occurred, earlier in the line being searched or in
+     * the game before it, can be repeated until it is a draw, so it is scored as
+     * one. Only positions since the last capture or pawn move can match.
+     */
+    private boolean repeats(int ply, long key) {
+        int reach = clocks[ply];
+        for (int back = 2; back <= reach; back += 2) {
+            int earlier = ply - back;
+            long earlierKey;
+            if (earlier >= 0) {
+                earlierKey = keys[earlier];
+            } else if (-earlier <= gameKeys.length) {
+                earlierKey = gameKeys[gameKeys.length + earlier];
+            } else {
+                break;
+            }
+            if (earlierKey == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasNoMoves(int team, int castling, int enPassant, int ply) {
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+        return moves.isEmpty();
+    }
+
+    private boolean isInCheck(int team) {
+        int king = bits.kingSquare(team);
+        return king >= 0 && Attacks.isSquareAttacked(bits, king, 1 - team);
+    }
+
+    private int evaluate(int team) {
+        int score = Evaluation.evaluate(bits, pawnTable);
+        return team == Bitboard.WHITE ? score : -score;
+    }
+
+    private boolean isCapture(int move) {
+        return bits.pieceAt(Move.to(move)) != Bitboard.EMPTY || Move.flag(move) == Move.EN_PASSANT;
+    }
+
+    private void scoreMoves(MoveList moves, int ply, int preferred) {
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int piece = bits.pieceAt(Move.from(move));
+            int victim = bits.pieceAt(Move.to(move));
+            int score;
+            if (move == preferred) {
+                score = PREFERRED_SCORE;
+            } else if (victim != Bitboard.EMPTY || Move.flag(move) == Move.EN_PASSANT) {
+                int victimValue = victim == Bitboard.EMPTY ? Evaluation.value(ChessPiece.PieceType.PAWN)
+                        : Evaluation.PIECE_VALUES[Bitboard.typeOf(victim).ordinal()];
+                score = CAPTURE_SCORE + victimValue * 10 - Evaluation.PIECE_VALUES[Bitboard.typeOf(piece).ordinal()] / 10;
+            } else if (Move.isPromotion(move)) {
+                score = PROMOTION_SCORE + Evaluation.value(Move.promotionType(move));
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                score = history[piece][Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the highest scored of the untried moves to position i and returns it
+     */
+    private int pickNext(MoveList moves, int ply, int i) {
+        int[] scores = moveScores[ply];
+        int best = i;
+        for (int j = i + 1; j < moves.size(); j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            moves.swap(i, best);
+            int score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(i);
+    }
+
+    private void rememberCutoff(int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] pieceHistory = history[bits.pieceAt(Move.from(move))];
+        int to = Move.to(move);
+        pieceHistory[to] += depth * depth;
+        if (pieceHistory[to] > HISTORY_LIMIT) {
+            // keep history below the killer band, and let old cutoffs fade
+            for (int[] scores : history) {
+                for (int square = 0; square < scores.length; square++) {
+                    scores[square] /= 2;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, shared by any number of search
+ * threads without locks.
+ * <p>
+ * Each entry is two longs in one array: the position's Zobrist key xor-ed with
+ * the entry's data, then the data itself. The data packs the best move, the score,
+ * the depth searched, whether the score is exact or only a bound, and the search
+ * generation that wrote it. A reader recovers the key by xor-ing the two longs
+ * together. If another thread was writing the entry at the same moment, the halves
+ * come from different writes and the recovered key does not match, so a torn
+ * entry reads as a miss instead of as wrong data.
+ */
+public class TranspositionTable {
+
+    /** The score is a lower bound: the search failed high */
+    public static final int LOWER = 1;
+    /** The score is an upper bound: no move reached alpha */
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int SCORE_OFFSET = 1 << 15;
+
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+
+    /**
+     * @param megabytes the memory to use; the number of entries is rounded down to
+     *                  a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+        }
+        long bytes = (long) megabytes * 1024 * 1024;
+        long count = Long.highestOneBit(bytes / (ENTRY_LONGS * Long.BYTES));
+        if (count > (1 << 28)) {
+            throw new IllegalArgumentException("Table size is too large: " + megabytes + " MB");
+        }
+        entries = new long[(int) count * ENTRY_LONGS];
+        mask = (int) count - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier searches are
+     * replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(entries, 0L);
+    }
+
+    /**
+     * @return the entry's data for the key, or 0 if there is none
+     */
+    public long probe(long key) {
+        int index = index(key);
+        long data = entries[index + 1];
+        return (entries[index] ^ data) == key ? data : 0L;
+    }
+
+    /**
+     * Records a search result, replacing the entry in its slot if that entry is for
+     * another position and is either from an older search or was searched no
+     * deeper, or is for the same position
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = index(key);
+        long oldData = entries[index + 1];
+        boolean samePosition = (entries[index] ^ oldData) == key;
+        if (oldData != 0 && !samePosition && generation(oldData) == generation && depth(oldData) > depth) {
+            return;
+        }
+        if (samePosition && move == Move.NONE) {
+            // keep the best move an earlier search found
+            move = move(oldData);
+        }
+        long data = (move & 0xFFFFFL)
+                | ((long) (score + SCORE_OFFSET) << 20)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 36)
+                | ((long) bound << 44)
+                | ((long) generation << 46);
+        entries[index] = key ^ data;
+        entries[index + 1] = data;
+    }
+
+    private int index(long key) {
+        return ((int) (key >>> 32) & mask) * ENTRY_LONGS;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    public static int score(long data) {
+        return (int) ((data >>> 20) & 0xFFFF) - SCORE_OFFSET;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 36) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 44) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 46) & 0xFF);
+    }
+}
@@ -0,0 +1,98 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64 bit keys for Zobrist hashing.
+ * <p>
+ * A position's key is the exclusive or of one key per piece on its square, one per
+ * castling right still held, one for the file of a capturable en passant square,
+ * and one more when black is to move. Making a move only touches the few squares it
+ * changes, so the key can be updated by xor-ing those keys out and in again instead
+ * of being recomputed from the whole board.
+ * <p>
+ * The keys come from a fixed seed so they are the same on every run and on every
+ * machine, which keeps stored keys comparable.
+ */
+public class Zobrist {
+
+    private static final long SEED = 0x5EED_C0DE_2400L;
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[4];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < CASTLING.length; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Builds the full key of a position from the board's piece key
+     *
+     * @param team      the team to move
+     * @param castling  castling rights as a mask of the {@link ChessBoard} constants
+     * @param enPassant the en passant square, or -1; it only counts when a pawn of
+     *                  the team to move could capture there
+     */
+    public static long key(Bitboard bits, int team, int castling, int enPassant) {
+        long key = bits.key() ^ castling(castling);
+        if (enPassant >= 0 && Bitboard.row(enPassant) == (team == Bitboard.WHITE ? 6 : 3)
+                && (Attacks.pawn(1 - team, enPassant) & bits.pieces(team, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= enPassant(Bitboard.column(enPassant));
+        }
+        return team == Bitboard.BLACK ? key ^ SIDE : key;
+    }
+
+    /**
+     * @param piece  a piece index from {@link Bitboard#piece}
+     * @param square a square index from {@link Bitboard#square}
+     * @return the key for that piece standing on that square
+     */
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    /**
+     * @param rights castling rights as a mask of the {@link ChessBoard} castling constants
+     * @return the combined key of every right in the mask
+     */
+    public static long castling(int rights) {
+        long key = 0L;
+        for (int i = 0; i < CASTLING.length; i++) {
+            if ((rights & (1 << i)) != 0) {
+                key ^= CASTLING[i];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @param column the column of the en passant square, starting at 1
+     */
+    public static long enPassant(int column) {
+        return EN_PASSANT_FILE[column - 1];
+    }
+
+    /**
+     * @return the key included when black is to move
+     */
+    public static long side() {
+        return SIDE;
+    }
+}
@@ -9,6 +9,8 @@ public class GameData {
     private String blackUsername;
     private final String gameName;
     private ChessGame game;
+    // moves recorded for the game, which is not part of any response
+    private transient int moveCount;
 
     public GameData(String gameName) {
         this.gameName = gameName;
@@ -23,6 +25,18 @@ public class GameData {
         this.game = game;
     }
 
+    /**
+     * @return the number of moves made in the game so far, so the next one is
+     * recorded as move {@code getMoveCount() + 1}
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
+    }
+
     public int getGameID() {
         return gameID;
     }
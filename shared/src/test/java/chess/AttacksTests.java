@@ -0,0 +1,144 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttacksTests {
+
+    private static ChessGame gameOf(String boardText) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        return game;
+    }
+
+    @Test
+    @DisplayName("Square Attacked - Pawns Attack Forward Only")
+    void pawnAttacks() {
+        ChessGame game = gameOf("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | | |P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """);
+        assertTrue(game.isSquareAttacked(new ChessPosition(4, 3), ChessGame.TeamColor.WHITE));
+        assertTrue(game.isSquareAttacked(new ChessPosition(4, 5), ChessGame.TeamColor.WHITE));
+        assertTrue(game.isSquareAttacked(new ChessPosition(4, 3), ChessGame.TeamColor.BLACK));
+        // a pawn never attacks the square in front of it or behind it
+        assertFalse(game.isSquareAttacked(new ChessPosition(4, 4), ChessGame.TeamColor.WHITE));
+        assertFalse(game.isSquareAttacked(new ChessPosition(2, 3), ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Square Attacked - Rays Stop At Blockers")
+    void sliderAttacks() {
+        ChessGame game = gameOf("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | |n| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | |B|
+                """);
+        assertTrue(game.isSquareAttacked(new ChessPosition(4, 4), ChessGame.TeamColor.WHITE));
+        assertTrue(game.isSquareAttacked(new ChessPosition(4, 2), ChessGame.TeamColor.WHITE));
+        assertTrue(game.isSquareAttacked(new ChessPosition(5, 4), ChessGame.TeamColor.WHITE));
+        // the knight on d4 shields the rest of the row and the bishop's diagonal
+        assertFalse(game.isSquareAttacked(new ChessPosition(4, 6), ChessGame.TeamColor.WHITE));
+        assertFalse(game.isSquareAttacked(new ChessPosition(5, 3), ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Square Attacked - Knights And Kings")
+    void stepAttacks() {
+        ChessGame game = gameOf("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |n| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |k| | | | | | | |
+                """);
+        assertTrue(game.isSquareAttacked(new ChessPosition(2, 3), ChessGame.TeamColor.BLACK));
+        assertTrue(game.isSquareAttacked(new ChessPosition(6, 5), ChessGame.TeamColor.BLACK));
+        assertTrue(game.isSquareAttacked(new ChessPosition(2, 2), ChessGame.TeamColor.BLACK));
+        assertFalse(game.isSquareAttacked(new ChessPosition(5, 5), ChessGame.TeamColor.BLACK));
+        assertFalse(game.isSquareAttacked(new ChessPosition(2, 3), ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Is In Check - No King")
+    void noKingIsNeverInCheck() {
+        ChessGame game = gameOf("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |q| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """);
+        assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Attack Tables - Step Pieces")
+    void stepTables() {
+        assertEquals(2, Long.bitCount(Attacks.knight(Bitboard.square(1, 1))));
+        assertEquals(8, Long.bitCount(Attacks.knight(Bitboard.square(4, 4))));
+        assertEquals(3, Long.bitCount(Attacks.king(Bitboard.square(8, 8))));
+        assertEquals(8, Long.bitCount(Attacks.king(Bitboard.square(5, 5))));
+        // pawns on the edge columns only capture one way
+        assertEquals(1L << Bitboard.square(3, 2), Attacks.pawn(Bitboard.WHITE, Bitboard.square(2, 1)));
+        assertEquals(1L << Bitboard.square(6, 7), Attacks.pawn(Bitboard.BLACK, Bitboard.square(7, 8)));
+    }
+
+    @Test
+    @DisplayName("Attack Tables - Sliders Stop At Blockers")
+    void sliderTables() {
+        int d4 = Bitboard.square(4, 4);
+        long occupied = (1L << Bitboard.square(4, 6)) | (1L << Bitboard.square(6, 6)) | (1L << Bitboard.square(2, 4));
+        long rook = Attacks.rook(d4, occupied);
+        // the blockers themselves are attacked, the squares behind them are not
+        assertTrue((rook & (1L << Bitboard.square(4, 6))) != 0);
+        assertEquals(0, rook & (1L << Bitboard.square(4, 7)));
+        assertTrue((rook & (1L << Bitboard.square(2, 4))) != 0);
+        assertEquals(0, rook & (1L << Bitboard.square(1, 4)));
+        assertEquals(14 - 2 - 1, Long.bitCount(rook));
+
+        long bishop = Attacks.bishop(d4, occupied);
+        assertTrue((bishop & (1L << Bitboard.square(6, 6))) != 0);
+        assertEquals(0, bishop & (1L << Bitboard.square(7, 7)));
+        assertEquals(Attacks.rook(d4, occupied) | bishop, Attacks.queen(d4, occupied));
+    }
+
+    @Test
+    @DisplayName("Magics - Match Ray Walk")
+    void magicsMatchRays() {
+        SplittableRandom random = new SplittableRandom(240);
+        for (int trial = 0; trial < 2000; trial++) {
+            long occupied = random.nextLong() & random.nextLong();
+            int square = random.nextInt(64);
+            long rook = Attacks.rayAttacks(Attacks.NORTH, square, occupied) | Attacks.rayAttacks(Attacks.EAST, square, occupied)
+                    | Attacks.rayAttacks(Attacks.SOUTH, square, occupied) | Attacks.rayAttacks(Attacks.WEST, square, occupied);
+            long bishop = Attacks.rayAttacks(Attacks.NORTH_EAST, square, occupied)
+                    | Attacks.rayAttacks(Attacks.NORTH_WEST, square, occupied)
+                    | Attacks.rayAttacks(Attacks.SOUTH_EAST, square, occupied)
+                    | Attacks.rayAttacks(Attacks.SOUTH_WEST, square, occupied);
+            assertEquals(rook, Magics.rook(square, occupied), "rook on " + square);
+            assertEquals(bishop, Magics.bishop(square, occupied), "bishop on " + square);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitboardTests {
+
+    @Test
+    @DisplayName("Reset Board - Masks Match Squares")
+    void resetBoardMasks() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Bitboard bits = board.getBitboard();
+        // rows 1-2 are white, rows 7-8 are black
+        assertEquals(0x000000000000FFFFL, bits.team(Bitboard.WHITE));
+        assertEquals(0xFFFF000000000000L, bits.team(Bitboard.BLACK));
+        assertEquals(0x000000000000FF00L, bits.pieces(Bitboard.WHITE, ChessPiece.PieceType.PAWN));
+        assertEquals(Bitboard.square(1, 5), bits.kingSquare(Bitboard.WHITE));
+        assertEquals(Bitboard.square(8, 5), bits.kingSquare(Bitboard.BLACK));
+    }
+
+    @Test
+    @DisplayName("Add Piece - Replaces And Removes")
+    void addPieceUpdatesMasks() {
+        ChessBoard board = new ChessBoard();
+        ChessPosition square = new ChessPosition(4, 4);
+        board.addPiece(square, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        board.addPiece(square, new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        Bitboard bits = board.getBitboard();
+        // the knight should be gone once the queen replaces it
+        assertEquals(0L, bits.team(Bitboard.WHITE));
+        assertEquals(Bitboard.piece(Bitboard.BLACK, ChessPiece.PieceType.QUEEN),
+                bits.pieceAt(Bitboard.square(square)));
+        board.addPiece(square, null);
+        assertEquals(0L, bits.occupied());
+        assertEquals(Bitboard.EMPTY, bits.pieceAt(Bitboard.square(square)));
+    }
+
+    @Test
+    @DisplayName("Get Piece - Off Board")
+    void getPieceOffBoard() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        assertNull(board.getPiece(new ChessPosition(0, 4)));
+        assertNull(board.getPosition(new ChessPosition(9, 9)));
+    }
+
+    @Test
+    @DisplayName("Copy - Independent Mirror")
+    void copyIsIndependent() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        ChessBoard copy = board.copy();
+        copy.addPiece(new ChessPosition(2, 1), null);
+        // changing the copy must not touch the original mirror
+        assertNotEquals(board.getBitboard().occupied(), copy.getBitboard().occupied());
+        assertNotNull(board.getPiece(new ChessPosition(2, 1)));
+    }
+
+    @Test
+    @DisplayName("Deserialize - Mirror Rebuilt")
+    void deserializedBoardRebuildsMirror() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Gson gson = new Gson();
+        ChessBoard restored = gson.fromJson(gson.toJson(board), ChessBoard.class);
+        // the mirror is transient, so it has to be rebuilt from the squares
+        assertEquals(board.getBitboard().occupied(), restored.getBitboard().occupied());
+        assertEquals(board, restored);
+    }
+}
@@ -0,0 +1,127 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluationTests {
+
+    // the same position with the colors swapped and the board turned around
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            placement.append(swapCase(ranks[i]));
+            if (i > 0) {
+                placement.append('/');
+            }
+        }
+        String turn = fields[1].equals("w") ? "b" : "w";
+        String castling = fields[2].equals("-") ? "-" : swapCase(fields[2]);
+        return placement + " " + turn + " " + castling + " - 0 1";
+    }
+
+    private static String swapCase(String text) {
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+
+    private static int evaluate(String fen) {
+        return Evaluation.evaluate(Fen.parse(fen));
+    }
+
+    @Test
+    @DisplayName("Evaluation - Symmetric")
+    void symmetric() {
+        assertEquals(0, evaluate(Fen.START_POSITION));
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            String fen = reference.getFen();
+            assertEquals(evaluate(fen), -evaluate(mirror(fen)), reference.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Evaluation - Incremental Terms Match A Fresh Board")
+    void incrementalMatchesRebuild() {
+        Random random = new Random(17);
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            ChessGame game = Fen.parse(reference.getFen());
+            Bitboard bits = game.getBoard().getBitboard().copy();
+            int team = Bitboard.team(game.getTeamTurn());
+            int castling = game.getBoard().castlingRights();
+            int enPassant = game.getBoard().enPassantIndex();
+            for (int ply = 0; ply < 40; ply++) {
+                MoveList moves = new MoveList();
+                MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                int move = moves.get(random.nextInt(moves.size()));
+                bits.make(move);
+                castling = MoveGenerator.castlingAfter(castling, move);
+                enPassant = MoveGenerator.enPassantAfter(move);
+                team = 1 - team;
+
+                Bitboard rebuilt = new Bitboard();
+                for (int square = 0; square < 64; square++) {
+                    if (bits.pieceAt(square) != Bitboard.EMPTY) {
+                        rebuilt.put(square, bits.pieceAt(square));
+                    }
+                }
+                assertEquals(rebuilt.middlegame(), bits.middlegame(), reference.getName());
+                assertEquals(rebuilt.endgame(), bits.endgame(), reference.getName());
+                assertEquals(rebuilt.phase(), bits.phase(), reference.getName());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Evaluation - Make And Unmake Restore The Score")
+    void unmakeRestores() {
+        Bitboard bits = Fen.parse(Perft.REFERENCES.get(1).getFen()).getBoard().getBitboard().copy();
+        int before = Evaluation.evaluate(bits);
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(bits, Bitboard.WHITE, ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE,
+                -1, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int captured = bits.make(moves.get(i));
+            bits.unmake(moves.get(i), captured);
+            assertEquals(before, Evaluation.evaluate(bits), Move.toString(moves.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Evaluation - Phase")
+    void phase() {
+        assertEquals(Evaluation.MAX_PHASE, Fen.parse(Fen.START_POSITION).getBoard().getBitboard().phase());
+        assertEquals(0, Fen.parse("8/5k2/4p3/8/3P4/8/2K5/8 w - - 0 1").getBoard().getBitboard().phase());
+    }
+
+    @Test
+    @DisplayName("Evaluation - Pawn Structure")
+    void pawnStructure() {
+        // a passed pawn beats a blocked one, and doubled pawns score below pawns side by side
+        int passed = evaluate("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1");
+        int blocked = evaluate("4k3/3p4/8/3P4/8/8/8/4K3 w - - 0 1") + Evaluation.value(ChessPiece.PieceType.PAWN);
+        assertTrue(passed > blocked, passed + " <= " + blocked);
+
+        long doubled = (1L << Bitboard.square(2, 1)) | (1L << Bitboard.square(3, 1));
+        long apart = (1L << Bitboard.square(2, 1)) | (1L << Bitboard.square(2, 2));
+        assertTrue(Evaluation.pawnStructure(doubled, 0) < Evaluation.pawnStructure(apart, 0));
+    }
+
+    @Test
+    @DisplayName("Evaluation - King Safety")
+    void kingSafety() {
+        // the same material, with the castled king's pawns pushed away
+        int sheltered = evaluate("r1bq1rk1/pppp1ppp/2n2n2/4p3/4P3/2N2N2/PPPP1PPP/R1BQ1RK1 w - - 0 1");
+        int exposed = evaluate("r1bq1rk1/pppp1ppp/2n2n2/4p3/4P1PP/2N2N2/PPPP1P2/R1BQ1RK1 w - - 0 1");
+        assertTrue(sheltered > exposed, sheltered + " <= " + exposed);
+    }
+}
@@ -0,0 +1,66 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Fen - Round Trip")
+    void roundTrip() {
+        assertEquals(Fen.START_POSITION, new ChessGame().toFen());
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            String fen = reference.getFen();
+            ChessGame game = ChessGame.fromFen(fen);
+            assertEquals(fen, game.toFen(), reference.getName());
+            assertEquals(game, ChessGame.fromFen(game.toFen()), reference.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Fen - Follows Moves")
+    void followsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+        game.makeMove(move(7, 3, 5, 3));
+        game.makeMove(move(1, 7, 3, 6));
+        assertEquals("rnbqkbnr/pp1ppppp/8/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2", game.toFen());
+        game.makeMove(move(8, 2, 6, 3));
+        // moving the rook gives up castling on its side
+        game.makeMove(move(1, 8, 1, 7));
+        assertEquals("r1bqkbnr/pp1ppppp/2n5/2p5/4P3/5N2/PPPP1PPP/RNBQKBR1 b Qkq - 3 3", game.toFen());
+
+        ChessGame loaded = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+        assertEquals(game.toFen(), loaded.toFen());
+        assertEquals(game.toFen(), game.copy().toFen());
+    }
+
+    @Test
+    @DisplayName("Fen - Clocks Are Optional")
+    void clocks() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K2R w K - 37 81");
+        assertEquals(37, game.getHalfmoveClock());
+        assertEquals(81, game.getFullmoveNumber());
+        assertEquals("4k3/8/8/8/8/8/8/4K2R w K - 0 1", ChessGame.fromFen("4k3/8/8/8/8/8/8/4K2R w K -").toFen());
+
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - x 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 0"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - -1 1"));
+    }
+
+    @Test
+    @DisplayName("Fen - Board Placement")
+    void boardPlacement() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", board.toFen());
+        ChessBoard parsed = ChessBoard.fromFen(board.toFen());
+        assertEquals(board, parsed);
+        // only FEN's castling field grants castling
+        assertEquals(0, parsed.castlingRights());
+    }
+}
@@ -0,0 +1,75 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class GameStateCodecTests {
+
+    private static void assertRoundTrip(ChessGame game) {
+        ChessGame decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+        assertEquals(game, decoded);
+        assertEquals(game.toFen(), decoded.toFen());
+        assertEquals(game.getBoard().getLastMove(), decoded.getBoard().getLastMove());
+        assertEquals(game.getZobristKey(), decoded.getZobristKey());
+        assertEquals(game.getStatus(), decoded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Codec - Round Trip")
+    void roundTrip() {
+        assertRoundTrip(new ChessGame());
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            assertRoundTrip(Fen.parse(reference.getFen()));
+        }
+        ChessGame promoted = Fen.parse("8/8/8/8/8/8/8/8 w - - 0 1");
+        promoted.getBoard().setLastMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1),
+                ChessPiece.PieceType.KNIGHT));
+        assertRoundTrip(promoted);
+
+        ChessGame resigned = new ChessGame();
+        resigned.setGameOver(true);
+        assertTrue(GameStateCodec.decode(GameStateCodec.encode(resigned)).isGameOver());
+    }
+
+    @Test
+    @DisplayName("Codec - Keeps Repetition History")
+    void keepsHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            game.makeMove(move(1, 7, 3, 6));
+            game.makeMove(move(8, 7, 6, 6));
+            game.makeMove(move(3, 6, 1, 7));
+            game.makeMove(move(6, 6, 8, 7));
+        }
+        assertEquals(GameStatus.DRAW_BY_REPETITION, game.getStatus());
+        ChessGame decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+        assertEquals(GameStatus.DRAW_BY_REPETITION, decoded.getStatus());
+        assertEquals(8, decoded.getHalfmoveClock());
+        assertEquals(5, decoded.getFullmoveNumber());
+    }
+
+    @Test
+    @DisplayName("Codec - Much Smaller Than Gson")
+    void size() {
+        ChessGame game = new ChessGame();
+        byte[] encoded = GameStateCodec.encode(game);
+        assertTrue(encoded.length <= 40, encoded.length + " bytes");
+        assertTrue(encoded.length * 20 < new Gson().toJson(game).length());
+    }
+
+    @Test
+    @DisplayName("Codec - Bad Input")
+    void badInput() {
+        byte[] encoded = GameStateCodec.encode(new ChessGame());
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(new byte[3]));
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(Arrays.copyOf(encoded, 20)));
+        byte[] future = encoded.clone();
+        future[0] = GameStateCodec.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(future));
+    }
+}
@@ -0,0 +1,122 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class GameStatusTests {
+
+    @Test
+    @DisplayName("Status - Each Outcome")
+    void eachOutcome() {
+        assertEquals(GameStatus.IN_PROGRESS, new ChessGame().getStatus());
+        assertEquals(GameStatus.CHECK, Fen.parse("4k3/8/8/8/8/8/8/4K2r w - - 0 1").getStatus());
+        assertEquals(GameStatus.CHECKMATE, Fen.parse("4k3/8/8/8/8/8/5PPP/3r2K1 w - - 0 1").getStatus());
+        assertEquals(GameStatus.STALEMATE, Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").getStatus());
+    }
+
+    @Test
+    @DisplayName("Status - Follows Moves And Undo")
+    void followsMoves() throws InvalidMoveException {
+        // fool's mate
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+        assertFalse(game.isGameOver());
+
+        MoveUndo undo = new MoveUndo();
+        game.makeMove(move(8, 4, 4, 8), undo);
+        assertEquals(GameStatus.CHECKMATE, game.getStatus());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertTrue(game.isGameOver());
+
+        game.unmakeMove(undo);
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+        assertFalse(game.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Status - Other Team Still Answered")
+    void otherTeam() {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/5PPP/3r2K1 w - - 0 1");
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertFalse(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+    }
+
+    @Test
+    @DisplayName("Status - Threefold Repetition")
+    void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        // the start position has come up twice
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+
+        MoveUndo undo = new MoveUndo();
+        game.makeMove(move(6, 6, 8, 7), undo);
+        assertEquals(GameStatus.DRAW_BY_REPETITION, game.getStatus());
+        assertTrue(game.getStatus().isDraw());
+        assertTrue(game.isGameOver());
+        game.unmakeMove(undo);
+        assertFalse(game.isGameOver());
+
+        // copies keep the history, but it is left out of the JSON sent to clients,
+        // which GameStateCodec is used to store instead
+        game.makeMove(move(6, 6, 8, 7));
+        assertEquals(GameStatus.DRAW_BY_REPETITION, game.copy().getStatus());
+        String json = new Gson().toJson(game);
+        assertFalse(json.contains("keyHistory"), json);
+        assertFalse(json.contains("historyLength"), json);
+        assertEquals(GameStatus.DRAW_BY_REPETITION, GameStateCodec.decode(GameStateCodec.encode(game)).getStatus());
+    }
+
+    @Test
+    @DisplayName("Status - Pawn Moves End Repetition")
+    void pawnMoveClearsHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        assertEquals(0, game.getHalfmoveClock());
+        shuffleKnights(game);
+        assertEquals(4, game.getHalfmoveClock());
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Status - Fifty Move Rule")
+    void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/4P3/R3K3 w - - 0 1");
+        game.setHalfmoveClock(99);
+        MoveUndo undo = new MoveUndo();
+        game.makeMove(move(1, 1, 2, 1), undo);
+        assertEquals(100, game.getHalfmoveClock());
+        assertEquals(GameStatus.DRAW_BY_FIFTY_MOVES, game.getStatus());
+        game.unmakeMove(undo);
+        assertEquals(99, game.getHalfmoveClock());
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+        game.makeMove(move(2, 5, 3, 5));
+        assertEquals(0, game.getHalfmoveClock());
+
+        // a mate on the hundredth move still wins
+        ChessGame mate = Fen.parse("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        mate.setHalfmoveClock(99);
+        mate.makeMove(move(1, 1, 8, 1));
+        assertEquals(GameStatus.CHECKMATE, mate.getStatus());
+    }
+}
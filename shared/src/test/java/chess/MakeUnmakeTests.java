@@ -0,0 +1,113 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class MakeUnmakeTests {
+
+    private static ChessGame gameOf(String boardText, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    // make a move, then take it back, and check the game is exactly as it was
+    private static void assertRestored(ChessGame game, ChessMove move) {
+        ChessGame before = game.copy();
+        ChessMove lastMove = game.getBoard().getLastMove();
+        MoveUndo undo = new MoveUndo();
+        game.makeMove(move, undo);
+        assertNotEquals(before, game);
+        game.unmakeMove(undo);
+        assertEquals(before, game);
+        assertSame(lastMove, game.getBoard().getLastMove());
+        for (int square = 0; square < 64; square++) {
+            ChessPiece expected = before.getBoard().getBoard().get(square).getOccupied();
+            ChessPiece actual = game.getBoard().getBoard().get(square).getOccupied();
+            if (expected != null) {
+                assertEquals(expected.isMoved(), actual.isMoved(), "moved flag on square " + square);
+            }
+        }
+        assertEquals(before.getBoard().getBitboard().occupied(), game.getBoard().getBitboard().occupied());
+    }
+
+    @Test
+    @DisplayName("Make/Unmake - Quiet Move")
+    void quietMove() {
+        assertRestored(new ChessGame(), move(1, 7, 3, 6, null));
+    }
+
+    @Test
+    @DisplayName("Make/Unmake - Capture")
+    void capture() {
+        ChessGame game = gameOf("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | |p| | | | |
+                | | | | |N| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """, ChessGame.TeamColor.WHITE);
+        assertRestored(game, move(5, 5, 6, 4, null));
+    }
+
+    @Test
+    @DisplayName("Make/Unmake - Castling Restores Rook")
+    void castling() {
+        ChessGame game = gameOf("""
+                |r| | | |k| | |r|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |R|
+                """, ChessGame.TeamColor.WHITE);
+        assertRestored(game, move(1, 5, 1, 7, null));
+        assertRestored(game, move(1, 5, 1, 3, null));
+        // castling rights survive the round trip
+        assertTrue(game.validMoves(new ChessPosition(1, 5)).contains(move(1, 5, 1, 7, null)));
+        assertTrue(game.validMoves(new ChessPosition(1, 5)).contains(move(1, 5, 1, 3, null)));
+    }
+
+    @Test
+    @DisplayName("Make/Unmake - En Passant Restores Pawn And Last Move")
+    void enPassant() throws InvalidMoveException {
+        ChessGame game = gameOf("""
+                | | | | |k| | | |
+                | | |p| | | | | |
+                | | | | | | | | |
+                | | | |P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """, ChessGame.TeamColor.BLACK);
+        game.makeMove(move(7, 3, 5, 3, null));
+        assertRestored(game, move(5, 4, 6, 3, null));
+        assertTrue(game.validMoves(new ChessPosition(5, 4)).contains(move(5, 4, 6, 3, null)));
+    }
+
+    @Test
+    @DisplayName("Make/Unmake - Promotion Restores Pawn")
+    void promotion() {
+        ChessGame game = gameOf("""
+                | | | | |k| | | |
+                |P| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """, ChessGame.TeamColor.WHITE);
+        assertRestored(game, move(7, 1, 8, 1, ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessPiece.PieceType.PAWN, game.getBoard().getPiece(new ChessPosition(7, 1)).getPieceType());
+    }
+}
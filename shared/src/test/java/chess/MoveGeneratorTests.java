@@ -0,0 +1,182 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveGeneratorTests {
+
+    @Test
+    @DisplayName("Move - Packing Round Trip")
+    void packing() {
+        int move = Move.promotion(Bitboard.square(7, 5), Bitboard.square(8, 6), ChessPiece.PieceType.KNIGHT);
+        assertEquals(Bitboard.square(7, 5), Move.from(move));
+        assertEquals(Bitboard.square(8, 6), Move.to(move));
+        assertEquals(ChessPiece.PieceType.KNIGHT, Move.promotionType(move));
+        assertEquals("e7f8n", Move.toString(move));
+
+        ChessMove chessMove = Move.toChessMove(move);
+        assertEquals(new ChessMove(new ChessPosition(7, 5), new ChessPosition(8, 6), ChessPiece.PieceType.KNIGHT),
+                chessMove);
+        assertTrue(Move.matches(move, chessMove));
+
+        int castle = Move.of(Bitboard.square(1, 5), Bitboard.square(1, 7), Move.CASTLE);
+        assertEquals(Move.CASTLE, Move.flag(castle));
+        assertFalse(Move.isPromotion(castle));
+        assertNull(Move.promotionType(castle));
+    }
+
+    @Test
+    @DisplayName("Move List - Grows And Reuses")
+    void moveList() {
+        MoveList moves = new MoveList(2);
+        for (int i = 0; i < 5; i++) {
+            moves.add(Move.of(i, i + 8));
+        }
+        assertEquals(5, moves.size());
+        assertTrue(moves.contains(Move.of(4, 12)));
+        moves.swap(0, 4);
+        assertEquals(Move.of(4, 12), moves.get(0));
+        moves.clear();
+        assertTrue(moves.isEmpty());
+        assertFalse(moves.contains(Move.of(4, 12)));
+    }
+
+    @Test
+    @DisplayName("Make/Unmake - Bitboard Special Moves")
+    void bitboardSpecialMoves() {
+        // castling, en passant and a capturing promotion are all available to white
+        ChessGame game = Fen.parse("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1");
+        Bitboard bits = game.getBoard().getBitboard().copy();
+        Bitboard before = bits.copy();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(bits, Bitboard.WHITE, game.getBoard().castlingRights(),
+                game.getBoard().enPassantIndex(), moves);
+        int specials = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.flag(move) != Move.QUIET || Move.isPromotion(move)) {
+                specials++;
+            }
+            int captured = bits.make(move);
+            bits.unmake(move, captured);
+            assertEquals(before.key(), bits.key(), Move.toString(move));
+            assertEquals(before.occupied(), bits.occupied(), Move.toString(move));
+        }
+        // two castles, one en passant, four promotions straight ahead and four capturing a8
+        assertEquals(11, specials);
+    }
+
+    @Test
+    @DisplayName("Castling Rights - Lost With King Or Rook")
+    void castlingAfter() {
+        int all = ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE
+                | ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE;
+        int kingMove = Move.of(Bitboard.square(1, 5), Bitboard.square(2, 5));
+        assertEquals(ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE, MoveGenerator.castlingAfter(all, kingMove));
+        int rookTakesRook = Move.of(Bitboard.square(1, 8), Bitboard.square(8, 8));
+        assertEquals(ChessBoard.WHITE_QUEENSIDE | ChessBoard.BLACK_QUEENSIDE,
+                MoveGenerator.castlingAfter(all, rookTakesRook));
+        int doublePush = Move.of(Bitboard.square(2, 5), Bitboard.square(4, 5), Move.DOUBLE_PUSH);
+        assertEquals(Bitboard.square(3, 5), MoveGenerator.enPassantAfter(doublePush));
+        assertEquals(-1, MoveGenerator.enPassantAfter(kingMove));
+    }
+
+    // the legal generator's moves, in order, next to the pseudo-legal moves that survive playing them out
+    private static void assertSameMoves(Bitboard bits, int team, int castling, int enPassant, String context) {
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(bits, team, castling, enPassant, legal);
+        MoveList filtered = new MoveList();
+        MoveGenerator.generate(bits, team, castling, enPassant, filtered);
+        int[] expected = new int[filtered.size()];
+        int count = 0;
+        for (int i = 0; i < filtered.size(); i++) {
+            if (MoveGenerator.isLegal(bits, filtered.get(i))) {
+                expected[count++] = filtered.get(i);
+            }
+        }
+        int[] actual = new int[legal.size()];
+        for (int i = 0; i < legal.size(); i++) {
+            actual[i] = legal.get(i);
+        }
+        expected = Arrays.copyOf(expected, count);
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual, context);
+    }
+
+    @Test
+    @DisplayName("Legal Generator - Matches Playing Moves Out")
+    void legalMatchesPlayedOut() {
+        Random random = new Random(240);
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            ChessGame game = Fen.parse(reference.getFen());
+            Bitboard bits = game.getBoard().getBitboard().copy();
+            int team = Bitboard.team(game.getTeamTurn());
+            int castling = game.getBoard().castlingRights();
+            int enPassant = game.getBoard().enPassantIndex();
+            for (int ply = 0; ply < 40; ply++) {
+                assertSameMoves(bits, team, castling, enPassant, reference.getName() + " ply " + ply);
+                MoveList moves = new MoveList();
+                MoveGenerator.generateLegal(bits, team, castling, enPassant, moves);
+                assertEquals(!moves.isEmpty(),
+                        MoveGenerator.hasLegalMove(bits, team, castling, enPassant, new MoveList()));
+                if (moves.isEmpty()) {
+                    break;
+                }
+                int move = moves.get(random.nextInt(moves.size()));
+                bits.make(move);
+                castling = MoveGenerator.castlingAfter(castling, move);
+                enPassant = MoveGenerator.enPassantAfter(move);
+                team = 1 - team;
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Legal Generator - Pins And Double Check")
+    void pinsAndDoubleCheck() {
+        // the knight is pinned by the rook on the e-file, the bishop by the queen on the diagonal
+        ChessGame pinned = Fen.parse("4r1k1/8/8/8/1q6/8/3BN3/4K3 w - - 0 1");
+        Bitboard bits = pinned.getBoard().getBitboard();
+        MoveList moves = new MoveList();
+        MoveGenerator.generatePieceLegal(bits, Bitboard.square(2, 5), 0, -1, moves);
+        assertTrue(moves.isEmpty(), moves.toString());
+        MoveGenerator.generatePieceLegal(bits, Bitboard.square(2, 4), 0, -1, moves);
+        assertEquals("[d2c3, d2b4]", moves.toString());
+
+        // knight and rook both give check, so only the king moves
+        ChessGame doubleCheck = Fen.parse("4k3/8/3N4/8/8/8/8/4R1K1 b - - 0 1");
+        moves.clear();
+        MoveGenerator.generateLegal(doubleCheck.getBoard().getBitboard(), Bitboard.BLACK, 0, -1, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            assertEquals(Bitboard.square(8, 5), Move.from(moves.get(i)), moves.toString());
+        }
+        assertFalse(moves.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Legal Generator - Stops At The First Legal Move")
+    void hasLegalMove() {
+        // the king is boxed in, so only the pawn can move
+        ChessGame pawnOnly = Fen.parse("k7/8/8/8/8/8/2q4P/K7 w - - 0 1");
+        MoveList scratch = new MoveList();
+        assertTrue(MoveGenerator.hasLegalMove(pawnOnly.getBoard().getBitboard(), Bitboard.WHITE, 0, -1, scratch));
+        assertEquals("[h2h3, h2h4]", scratch.toString());
+
+        ChessGame stalemate = Fen.parse("k7/8/8/8/8/8/2q5/K7 w - - 0 1");
+        assertFalse(MoveGenerator.hasLegalMove(stalemate.getBoard().getBitboard(), Bitboard.WHITE, 0, -1, scratch));
+        assertTrue(scratch.isEmpty());
+
+        ChessGame start = new ChessGame();
+        assertTrue(MoveGenerator.hasLegalMove(start.getBoard().getBitboard(), Bitboard.WHITE,
+                start.getBoard().castlingRights(), -1, scratch));
+        MoveList all = new MoveList();
+        MoveGenerator.generateLegal(start.getBoard().getBitboard(), Bitboard.WHITE,
+                start.getBoard().castlingRights(), -1, all);
+        assertTrue(scratch.size() < all.size(), scratch.toString());
+    }
+}
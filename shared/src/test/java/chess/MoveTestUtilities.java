@@ -0,0 +1,18 @@
+package chess;
+
+/**
+ * Shorthand for building moves from row and column numbers in tests
+ */
+final class MoveTestUtilities {
+
+    private MoveTestUtilities() {
+    }
+
+    static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return move(startRow, startCol, endRow, endCol, null);
+    }
+
+    static ChessMove move(int startRow, int startCol, int endRow, int endCol, ChessPiece.PieceType promotion) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), promotion);
+    }
+}
@@ -0,0 +1,48 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelSearchTests {
+
+    @Test
+    @DisplayName("Parallel Search - Mate In Two")
+    void mateInTwo() {
+        ChessGame game = Fen.parse("r6k/6pp/7N/8/8/1Q6/8/6K1 w - - 0 1");
+        try (ParallelSearch search = new ParallelSearch(4, new TranspositionTable(4))) {
+            Search.Result result = search.search(game, 6, 0);
+            assertEquals(new ChessMove(new ChessPosition(3, 2), new ChessPosition(8, 7), null), result.getMove());
+            assertEquals(Search.MATE - 3, result.getScore());
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel Search - Agrees With One Thread")
+    void agreesWithSingleThread() {
+        ChessGame game = Fen.parse("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        Search.Result single = new Search().search(game, 4, 0);
+        try (ParallelSearch search = new ParallelSearch(3, new TranspositionTable(4))) {
+            Search.Result result = search.search(game, 4, 0);
+            assertEquals(single.getMove(), result.getMove());
+            assertEquals(4, result.getDepth());
+            assertTrue(result.getNodes() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel Search - Time Limit And Game Unchanged")
+    void timeLimit() {
+        ChessGame game = Fen.parse(Perft.REFERENCES.get(1).getFen());
+        ChessGame before = game.copy();
+        try (ParallelSearch search = new ParallelSearch(4, new TranspositionTable(4))) {
+            Search.Result result = search.search(game, 64, 200);
+            assertNotNull(result.getMove());
+            assertTrue(result.getMillis() < 2000, result.toString());
+            // the same object can search again once the first search is over
+            assertNotNull(search.bestMove(game, 2, 0));
+        }
+        assertEquals(before, game);
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(0, new TranspositionTable(1)));
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PawnHashTableTests {
+
+    @Test
+    @DisplayName("Pawn Key - Only Pawns Change It")
+    void pawnKey() {
+        Bitboard bits = Fen.parse(Fen.START_POSITION).getBoard().getBitboard().copy();
+        long start = bits.pawnKey();
+        int knight = Move.of(Bitboard.square(1, 7), Bitboard.square(3, 6));
+        int captured = bits.make(knight);
+        assertEquals(start, bits.pawnKey());
+        bits.unmake(knight, captured);
+
+        int pawn = Move.of(Bitboard.square(2, 5), Bitboard.square(4, 5), Move.DOUBLE_PUSH);
+        captured = bits.make(pawn);
+        assertNotEquals(start, bits.pawnKey());
+        bits.unmake(pawn, captured);
+        assertEquals(start, bits.pawnKey());
+        assertEquals(0L, Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 0 1").getBoard().getBitboard().pawnKey());
+    }
+
+    @Test
+    @DisplayName("Pawn Table - Cached Scores Match And Are Counted")
+    void cachedScores() {
+        PawnHashTable table = new PawnHashTable(1000);
+        assertEquals(512, table.capacity());
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Bitboard bits = Fen.parse(reference.getFen()).getBoard().getBitboard();
+            assertEquals(Evaluation.evaluate(bits), Evaluation.evaluate(bits, table), reference.getName());
+            // looked up once, the structure is a hit from then on
+            long misses = table.getMisses();
+            long hits = table.getHits();
+            assertEquals(Evaluation.evaluate(bits), Evaluation.evaluate(bits, table), reference.getName());
+            assertEquals(hits + 1, table.getHits());
+            assertEquals(misses, table.getMisses());
+        }
+        assertTrue(table.getHits() >= Perft.REFERENCES.size());
+        assertEquals((double) table.getHits() / (table.getHits() + table.getMisses()), table.getHitRate(), 1e-9);
+
+        table.clear();
+        assertEquals(0, table.getHits() + table.getMisses());
+        assertEquals(0.0, table.getHitRate());
+        assertThrows(IllegalArgumentException.class, () -> new PawnHashTable(0));
+    }
+
+    @Test
+    @DisplayName("Pawn Table - Mostly Hits During A Search")
+    void searchHitRate() {
+        Search search = new Search();
+        search.search(Fen.parse(Perft.REFERENCES.get(1).getFen()), 4, 0);
+        PawnHashTable table = search.getPawnTable();
+        assertTrue(table.getHitRate() > 0.5, "hit rate " + table.getHitRate());
+    }
+}
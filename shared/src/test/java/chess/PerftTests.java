@@ -0,0 +1,143 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerftTests {
+
+    // deep enough to reach castling, en passant and promotion in every reference
+    // position while keeping the whole suite to a few seconds
+    private static final long NODE_BUDGET = 250_000;
+    // the game API allocates for every move, so it is checked less deeply
+    private static final long GAME_API_NODE_BUDGET = 30_000;
+
+    @Test
+    @DisplayName("Perft - Reference Positions")
+    void referencePositions() {
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            int depth = 1;
+            while (depth < reference.getMaxDepth() && reference.getNodes(depth + 1) <= NODE_BUDGET) {
+                depth++;
+            }
+            ChessGame game = Fen.parse(reference.getFen());
+            assertEquals(reference.getNodes(depth), Perft.perft(game, depth),
+                    reference.getName() + " at depth " + depth);
+        }
+    }
+
+    // counts through validMoves, makeMove and unmakeMove, so the game's bridge to the
+    // move generator (moved flags, the last move, undo) is checked as well as Perft
+    private static long gamePerft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        List<ChessMove> moves = new ArrayList<>();
+        for (ChessPosition square : game.getBoard().getBoard()) {
+            ChessPiece piece = square.getOccupied();
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                moves.addAll(game.validMoves(square));
+            }
+        }
+        long nodes = 0;
+        MoveUndo undo = new MoveUndo();
+        for (ChessMove move : moves) {
+            game.makeMove(move, undo);
+            nodes += gamePerft(game, depth - 1);
+            game.unmakeMove(undo);
+        }
+        return nodes;
+    }
+
+    @Test
+    @DisplayName("Perft - Through The Game API")
+    void gameApi() {
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            int depth = 1;
+            while (depth < reference.getMaxDepth() && reference.getNodes(depth + 1) <= GAME_API_NODE_BUDGET) {
+                depth++;
+            }
+            ChessGame game = Fen.parse(reference.getFen());
+            String before = game.toFen();
+            assertEquals(reference.getNodes(depth), gamePerft(game, depth), reference.getName() + " at depth " + depth);
+            assertEquals(before, game.toFen(), reference.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Perft - Game Restored Afterwards")
+    void perftRestoresGame() {
+        ChessGame game = Fen.parse(Perft.REFERENCES.get(1).getFen());
+        ChessGame before = game.copy();
+        Perft.perft(game, 3);
+        assertEquals(before, game);
+        assertEquals(before.getBoard().getLastMove(), game.getBoard().getLastMove());
+    }
+
+    @Test
+    @DisplayName("Divide - Sums To Perft")
+    void divideSumsToPerft() {
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        var counts = Perft.divide(game, 3);
+        assertEquals(20, counts.size());
+        assertEquals(8902L, counts.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    @DisplayName("Fen - Castling Rights Become Moved Flags")
+    void fenCastlingRights() {
+        ChessGame game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w Kq - 0 1");
+        ChessBoard board = game.getBoard();
+        assertFalse(board.getPiece(new ChessPosition(1, 5)).isMoved());
+        assertFalse(board.getPiece(new ChessPosition(1, 8)).isMoved());
+        assertTrue(board.getPiece(new ChessPosition(1, 1)).isMoved());
+        assertTrue(board.getPiece(new ChessPosition(8, 8)).isMoved());
+        assertFalse(board.getPiece(new ChessPosition(8, 1)).isMoved());
+    }
+
+    @Test
+    @DisplayName("Fen - Bad Input")
+    void fenBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8 w - -"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8/8/8/8/8/8 x - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("9/8/8/8/8/8/8/8 w - - 0 1"));
+    }
+
+    @Test
+    @DisplayName("Parallel Perft - Matches Single Threaded")
+    void parallelMatchesSerial() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Perft.Reference reference : Perft.REFERENCES.subList(0, 5)) {
+                ChessGame game = Fen.parse(reference.getFen());
+                ChessGame before = game.copy();
+                // split the root only, then the first two plies
+                assertEquals(reference.getNodes(3), Perft.parallelPerft(game, 3, pool), reference.getName());
+                assertEquals(reference.getNodes(3), Perft.parallelPerft(game, 3, 2, pool), reference.getName());
+                assertEquals(before, game);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Perft All - One Count Per Position")
+    void perftAllCountsEachPosition() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<ChessGame> games = Perft.REFERENCES.stream().map(r -> Fen.parse(r.getFen())).toList();
+            long[] counts = Perft.perftAll(games, 2, pool);
+            assertEquals(games.size(), counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                assertEquals(Perft.REFERENCES.get(i).getNodes(2), counts[i], Perft.REFERENCES.get(i).getName());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
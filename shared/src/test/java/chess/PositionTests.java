@@ -0,0 +1,65 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class PositionTests {
+
+    @Test
+    @DisplayName("Position - Snapshot Ignores Later Moves")
+    void snapshotIsIndependent() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Position start = game.snapshot();
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(ChessGame.TeamColor.WHITE, start.getTeamTurn());
+        assertNotNull(start.getPiece(new ChessPosition(2, 5)));
+        assertNull(start.getPiece(new ChessPosition(4, 5)));
+        assertEquals(new ChessGame().getZobristKey(), start.getZobristKey());
+        assertEquals(game.getZobristKey(), game.snapshot().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Position - Play Derives A New Position")
+    void playDerives() throws InvalidMoveException {
+        Position start = new ChessGame().snapshot();
+        Position afterE4 = start.play(move(2, 5, 4, 5));
+        Position afterE5 = afterE4.play(move(7, 5, 5, 5));
+
+        assertNotSame(start, afterE4);
+        assertSame(afterE4, afterE5.getPrevious());
+        assertSame(start, afterE5.getPrevious().getPrevious());
+        assertEquals(20, start.legalMoves().size());
+        assertEquals(new ChessPosition(6, 5), afterE5.getEnPassantSquare());
+
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        assertEquals(game.getZobristKey(), afterE5.getZobristKey());
+        assertEquals(game, afterE5.toGame());
+        assertEquals(game.getZobristKey(), afterE5.toGame().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Position - Illegal Move")
+    void illegalMove() {
+        Position start = new ChessGame().snapshot();
+        assertThrows(InvalidMoveException.class, () -> start.play(move(2, 5, 5, 5)));
+        assertThrows(InvalidMoveException.class, () -> start.play(move(7, 5, 5, 5)));
+    }
+
+    @Test
+    @DisplayName("Position - Status And Castling Carry Over")
+    void statusAndCastling() throws InvalidMoveException {
+        Position mated = Fen.parse("4k3/8/8/8/8/8/5PPP/3r2K1 w - - 0 1").snapshot();
+        assertEquals(GameStatus.CHECKMATE, mated.getStatus());
+        assertTrue(mated.isInCheck());
+
+        Position castles = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1").snapshot();
+        Position afterRook = castles.play(move(1, 1, 2, 1));
+        assertEquals(ChessBoard.WHITE_KINGSIDE | ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE,
+                afterRook.getCastlingRights());
+        assertEquals(afterRook.getCastlingRights(), afterRook.toGame().getBoard().castlingRights());
+    }
+}
@@ -0,0 +1,94 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class SearchTests {
+
+    @Test
+    @DisplayName("Search - Mate In One")
+    void mateInOne() {
+        // back rank mate with the rook
+        ChessGame game = Fen.parse("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        Search.Result result = new Search().search(game, 4, 0);
+        assertEquals(move(1, 1, 8, 1), result.getMove());
+        assertTrue(result.isMate());
+        assertEquals(Search.MATE - 1, result.getScore());
+    }
+
+    @Test
+    @DisplayName("Search - Mate In Two")
+    void mateInTwo() throws InvalidMoveException {
+        // queen sacrifice, then the knight smothers the king
+        ChessGame game = Fen.parse("r6k/6pp/7N/8/8/1Q6/8/6K1 w - - 0 1");
+        Search.Result result = new Search().search(game, 6, 0);
+        assertEquals(move(3, 2, 8, 7), result.getMove());
+        assertEquals(Search.MATE - 3, result.getScore());
+        game.makeMove(result.getMove());
+    }
+
+    @Test
+    @DisplayName("Search - Wins Hanging Queen")
+    void winsMaterial() {
+        ChessGame game = Fen.parse("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        Search.Result result = new Search().search(game, 3, 0);
+        assertEquals(move(2, 4, 5, 4), result.getMove());
+        assertTrue(result.getScore() > 300);
+    }
+
+    @Test
+    @DisplayName("Search - Does Not Grab A Defended Pawn")
+    void quiescenceSeesRecapture() {
+        // taking on d5 loses the queen to the e6 pawn
+        ChessGame game = Fen.parse("4k3/8/4p3/3p4/8/8/3Q4/4K3 w - - 0 1");
+        Search.Result result = new Search().search(game, 1, 0);
+        assertNotEquals(move(2, 4, 5, 4), result.getMove());
+    }
+
+    @Test
+    @DisplayName("Search - No Moves And Time Limit")
+    void edgeCases() {
+        ChessGame mated = Fen.parse("4k3/8/8/8/8/8/5PPP/3r2K1 w - - 0 1");
+        assertNull(new Search().bestMove(mated, 3, 0));
+
+        ChessGame game = new ChessGame();
+        ChessGame before = game.copy();
+        Search.Result result = new Search().search(game, 64, 200);
+        assertNotNull(result.getMove());
+        assertTrue(result.getMillis() < 2000, result.toString());
+        assertTrue(result.getDepth() >= 1);
+        assertEquals(before, game);
+        assertEquals(before.getZobristKey(), game.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Search - Sees Repetitions From The Game")
+    void gameRepetition() throws InvalidMoveException {
+        // black is a queen down, and can only hope to repeat the position
+        ChessGame game = Fen.parse("6n1/7k/8/8/8/8/8/QN2K3 w - - 0 1");
+        for (int i = 0; i < 2; i++) {
+            game.makeMove(move(1, 2, 3, 3));
+            game.makeMove(move(8, 7, 6, 6));
+            game.makeMove(move(3, 3, 1, 2));
+            if (i == 0) {
+                game.makeMove(move(6, 6, 8, 7));
+            }
+        }
+        Search.Result result = new Search().search(game, 4, 0);
+        // the knight going back makes the start position come up a third time
+        assertEquals(move(6, 6, 8, 7), result.getMove());
+        assertEquals(0, result.getScore());
+    }
+
+    @Test
+    @DisplayName("Search - Fifty Move Rule")
+    void fiftyMoveRule() {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/8/Q3K3 w - - 0 1");
+        assertTrue(new Search().search(game, 3, 0).getScore() > 500);
+        // no capture or pawn move is possible, so every line is drawn
+        game.setHalfmoveClock(99);
+        assertEquals(0, new Search().search(game, 3, 0).getScore());
+    }
+}
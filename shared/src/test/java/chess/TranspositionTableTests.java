@@ -0,0 +1,75 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Transposition Table - Store And Probe")
+    void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.of(Bitboard.square(2, 5), Bitboard.square(4, 5), Move.DOUBLE_PUSH);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -275, 7, TranspositionTable.UPPER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertNotEquals(0L, entry);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-275, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+
+        // same slot, different position
+        assertEquals(0L, table.probe(0x1234_5678_0000_0000L));
+        table.clear();
+        assertEquals(0L, table.probe(0x1234_5678_9ABC_DEF0L));
+    }
+
+    @Test
+    @DisplayName("Transposition Table - Size")
+    void size() {
+        TranspositionTable table = new TranspositionTable(3);
+        assertEquals(1, Integer.bitCount(table.capacity()));
+        assertTrue(table.capacity() * 16L <= 3 * 1024 * 1024);
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    @DisplayName("Transposition Table - Replacement")
+    void replacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long deep = 0x0000_0001_0000_0001L;
+        long shallow = 0x0000_0001_0000_0002L;
+        table.store(deep, Move.NONE, 10, 8, TranspositionTable.EXACT);
+
+        // a shallower result for another position does not push out a deeper one
+        table.store(shallow, Move.NONE, 20, 2, TranspositionTable.EXACT);
+        assertNotEquals(0L, table.probe(deep));
+        assertEquals(0L, table.probe(shallow));
+
+        // until the next search begins
+        table.newSearch();
+        table.store(shallow, Move.NONE, 20, 2, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(deep));
+        assertEquals(20, TranspositionTable.score(table.probe(shallow)));
+
+        // a result without a move keeps the move already known for the position
+        int move = Move.of(Bitboard.square(1, 7), Bitboard.square(3, 6), Move.QUIET);
+        table.store(shallow, move, 20, 2, TranspositionTable.LOWER);
+        table.store(shallow, Move.NONE, 30, 3, TranspositionTable.UPPER);
+        assertEquals(move, TranspositionTable.move(table.probe(shallow)));
+        assertEquals(30, TranspositionTable.score(table.probe(shallow)));
+    }
+
+    @Test
+    @DisplayName("Search - Table Carries Over Between Searches")
+    void searchReusesTable() {
+        ChessGame game = Fen.parse(Perft.REFERENCES.get(1).getFen());
+        Search search = new Search(new TranspositionTable(4));
+        Search.Result first = search.search(game, 4, 0);
+        Search.Result second = search.search(game, 4, 0);
+        assertEquals(first.getScore(), second.getScore());
+        assertTrue(second.getNodes() < first.getNodes(), second.getNodes() + " >= " + first.getNodes());
+    }
+}
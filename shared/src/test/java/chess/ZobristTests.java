@@ -0,0 +1,94 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static chess.MoveTestUtilities.move;
+
+public class ZobristTests {
+
+    private static void play(ChessGame game, ChessMove... moves) throws InvalidMoveException {
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+        }
+    }
+
+    @Test
+    @DisplayName("Zobrist - Transpositions Share A Key")
+    void transpositions() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        play(first, move(1, 7, 3, 6), move(8, 7, 6, 6), move(1, 2, 3, 3), move(8, 2, 6, 3));
+        ChessGame second = new ChessGame();
+        play(second, move(1, 2, 3, 3), move(8, 2, 6, 3), move(1, 7, 3, 6), move(8, 7, 6, 6));
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    @DisplayName("Zobrist - Side To Move Changes Key")
+    void sideToMove() {
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(white.getZobristKey(), black.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Zobrist - Castling Rights Change Key")
+    void castlingRights() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        long allRights = game.getZobristKey();
+        // the rook goes out and back, so only the lost right differs
+        play(game, move(1, 8, 2, 8), move(8, 1, 8, 2), move(2, 8, 1, 8), move(8, 2, 8, 1));
+        assertEquals(ChessBoard.WHITE_QUEENSIDE | ChessBoard.BLACK_KINGSIDE, game.getBoard().castlingRights());
+        assertEquals(Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w Qk - 0 1").getZobristKey(), game.getZobristKey());
+        assertNotEquals(allRights, game.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Zobrist - En Passant Only Counts When Capturable")
+    void enPassant() {
+        // a black pawn beside the double-stepped pawn can take it
+        assertNotEquals(Fen.parse("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1").getZobristKey(),
+                Fen.parse("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1").getZobristKey());
+        // with no pawn beside it the en passant square does not change the position
+        assertEquals(Fen.parse("4k3/8/8/8/4P3/8/8/4K3 b - e3 0 1").getZobristKey(),
+                Fen.parse("4k3/8/8/8/4P3/8/8/4K3 b - - 0 1").getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Zobrist - Incremental Key Matches Rebuilt Key")
+    void incrementalMatchesRebuilt() {
+        Random random = new Random(240);
+        ChessGame game = Fen.parse(Perft.REFERENCES.get(1).getFen());
+        long start = game.getZobristKey();
+        List<MoveUndo> undos = new ArrayList<>();
+        for (int ply = 0; ply < 60; ply++) {
+            List<ChessMove> moves = new ArrayList<>();
+            for (ChessPosition square : game.getBoard().getBoard()) {
+                ChessPiece piece = square.getOccupied();
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    moves.addAll(game.validMoves(square));
+                }
+            }
+            if (moves.isEmpty()) {
+                break;
+            }
+            MoveUndo undo = new MoveUndo();
+            game.makeMove(moves.get(random.nextInt(moves.size())), undo);
+            undos.add(undo);
+            // a copy through Gson rebuilds its bitboard, and so its key, from scratch
+            ChessGame rebuilt = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+            assertEquals(rebuilt.getZobristKey(), game.getZobristKey(), "after ply " + ply);
+        }
+        for (int i = undos.size() - 1; i >= 0; i--) {
+            game.unmakeMove(undos.get(i));
+        }
+        assertEquals(start, game.getZobristKey());
+    }
+}